@@ -12,6 +12,18 @@ public abstract class Agent {
      */
     public abstract int[] getPlayMove(int[][] board, int turn);
 
+    /**
+     * Determines the next move of the agent for a {@link BitBoard} state.
+     * The default implementation converts the state to a board and calls {@link #getPlayMove(int[][], int)}.
+     *
+     * @param state the current state of the game.
+     * @return the cell index of the move.
+     */
+    public int getPlayCell(long state) {
+        int[] move = getPlayMove(BitBoard.toBoard(state), BitBoard.turn(state));
+        return BitBoard.cell(move[0], move[1]);
+    }
+
     /**
      * Creates a deep copy of the given board.
      *
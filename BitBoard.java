@@ -0,0 +1,285 @@
+import java.util.Arrays;
+
+/**
+ * Compact 64-bit representation of the game state.
+ * A state is a plain {@code long}, so it is copied by value and never allocates.
+ *
+ * <pre>
+ * bits  0 -  8  cells taken by X (bit i is cell i = row * 3 + col)
+ * bits  9 - 17  cells taken by O
+ * bits 18 - 41  move ages: six 4-bit cell indexes, newest piece first, {@link #NONE} when unused
+ * bits 42 - 63  the current turn number
+ * </pre>
+ *
+ * Since the piece placed 6 turns ago always disappears when the next piece is placed,
+ * the ages field works as a shift register: applying a move shifts the new cell in and
+ * the oldest piece out.
+ */
+public final class BitBoard {
+
+    public static final int SIZE = 3; // The size of the game board
+    public static final int CELLS = SIZE * SIZE;
+    public static final int WINDOW = 6; // Number of pieces that stay on the board
+    public static final int NONE = 0xF; // Marks an unused age slot or a missing cell
+
+    public static final int X = 0;
+    public static final int O = 1;
+    public static final int NO_WINNER = -1;
+
+    public static final int FULL = (1 << CELLS) - 1;
+
+    /**
+     * The 8 winning lines (3 rows, 3 columns and 2 diagonals) as cell masks.
+     */
+    public static final int[] LINES = {
+            0b000000111, 0b000111000, 0b111000000,
+            0b001001001, 0b010010010, 0b100100100,
+            0b100010001, 0b001010100
+    };
+
+    private static final int O_SHIFT = 9;
+    private static final int AGES_SHIFT = 18;
+    private static final int TURN_SHIFT = 42;
+    private static final long AGES_MASK = 0xFFFFFFL;
+    private static final int OLDEST_SHIFT = (WINDOW - 1) * 4;
+
+    /**
+     * The state of an empty board at turn 0.
+     */
+    public static final long EMPTY = AGES_MASK << AGES_SHIFT;
+
+    private BitBoard() {
+    }
+
+    /**
+     * @param state the game state.
+     * @return the current turn number.
+     */
+    public static int turn(long state) {
+        return (int) (state >>> TURN_SHIFT);
+    }
+
+    /**
+     * @param state the game state.
+     * @param turn the new turn number, with the same parity as the current one.
+     * @return the same position at another turn.
+     */
+    public static long withTurn(long state, int turn) {
+        return (state & ((1L << TURN_SHIFT) - 1)) | (long) turn << TURN_SHIFT;
+    }
+
+    /**
+     * @param state the game state.
+     * @return the side to move, {@link #X} or {@link #O}.
+     */
+    public static int sideToMove(long state) {
+        return turn(state) & 1;
+    }
+
+    /**
+     * @param state the game state.
+     * @return the mask of cells taken by X.
+     */
+    public static int xMask(long state) {
+        return (int) state & FULL;
+    }
+
+    /**
+     * @param state the game state.
+     * @return the mask of cells taken by O.
+     */
+    public static int oMask(long state) {
+        return (int) (state >>> O_SHIFT) & FULL;
+    }
+
+    /**
+     * @param state the game state.
+     * @param side {@link #X} or {@link #O}.
+     * @return the mask of cells taken by the given side.
+     */
+    public static int mask(long state, int side) {
+        return (int) (state >>> (side * O_SHIFT)) & FULL;
+    }
+
+    /**
+     * @param state the game state.
+     * @return the mask of empty cells.
+     */
+    public static int emptyCells(long state) {
+        return ~(int) (state | (state >>> O_SHIFT)) & FULL;
+    }
+
+    /**
+     * @param state the game state.
+     * @return the six age slots, newest piece in the lowest 4 bits.
+     */
+    public static int ages(long state) {
+        return (int) (state >>> AGES_SHIFT) & (int) AGES_MASK;
+    }
+
+    /**
+     * Returns a normalized key of the state: the cells ordered by age and the side to move.
+     * Two states with the same key only differ in their absolute turn number, which does not
+     * affect the rest of the game.
+     *
+     * @param state the game state.
+     * @return a key that fits in 25 bits.
+     */
+    public static long key(long state) {
+        return ages(state) | (long) sideToMove(state) << 24;
+    }
+
+    /**
+     * Returns the cell of the piece placed {@code age} turns ago.
+     *
+     * @param state the game state.
+     * @param age a number between 1 (last move) and 6 (oldest piece).
+     * @return the cell index, or {@link #NONE} if there is no such piece.
+     */
+    public static int pieceAt(long state, int age) {
+        return (int) (state >>> (AGES_SHIFT + (age - 1) * 4)) & NONE;
+    }
+
+    /**
+     * Returns the piece that disappears when the next move is applied.
+     *
+     * @param state the game state.
+     * @return the cell index, or {@link #NONE} before turn 6.
+     */
+    public static int oldest(long state) {
+        return (int) (state >>> (AGES_SHIFT + OLDEST_SHIFT)) & NONE;
+    }
+
+    /**
+     * Applies a move for the side to move: the oldest piece is removed, the new piece is placed
+     * and the turn advances. Passing {@link #NONE} as the cell only removes the oldest piece.
+     *
+     * @param state the game state.
+     * @param cell the cell to play, normally one of {@link #emptyCells(long)}.
+     * @return the new state.
+     */
+    public static long apply(long state, int cell) {
+        int side = turn(state) & 1;
+        int shift = side * O_SHIFT;
+        // the oldest piece was placed 6 turns ago, so it always belongs to the side to move
+        int removed = oldest(state);
+        if (removed != NONE)
+            state &= ~(1L << (removed + shift));
+        if (cell != NONE)
+            state |= 1L << (cell + shift);
+        long ages = ((state >>> AGES_SHIFT) << 4 | cell) & AGES_MASK;
+        state = (state & ~(AGES_MASK << AGES_SHIFT)) | (ages << AGES_SHIFT);
+        return state + (1L << TURN_SHIFT);
+    }
+
+    /**
+     * Reverts the last move.
+     *
+     * @param state the game state after the move.
+     * @param removed the value {@link #oldest(long)} returned before the move was applied.
+     * @return the state before the move.
+     */
+    public static long undo(long state, int removed) {
+        state -= 1L << TURN_SHIFT;
+        int shift = (turn(state) & 1) * O_SHIFT;
+        int cell = pieceAt(state, 1);
+        if (cell != NONE)
+            state &= ~(1L << (cell + shift));
+        if (removed != NONE)
+            state |= 1L << (removed + shift);
+        long ages = (state >>> (AGES_SHIFT + 4) & (AGES_MASK >>> 4)) | ((long) removed << OLDEST_SHIFT);
+        return (state & ~(AGES_MASK << AGES_SHIFT)) | (ages << AGES_SHIFT);
+    }
+
+    /**
+     * Checks if the given cells contain a full line.
+     *
+     * @param mask a mask of cells taken by one side.
+     * @return true if the mask contains a winning line, false otherwise.
+     */
+    public static boolean hasLine(int mask) {
+        for (int line : LINES) {
+            if ((mask & line) == line)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks for a winner on the board.
+     *
+     * @param state the game state.
+     * @return {@link #X}, {@link #O} or {@link #NO_WINNER}.
+     */
+    public static int winner(long state) {
+        if (hasLine(xMask(state)))
+            return X;
+        if (hasLine(oMask(state)))
+            return O;
+        return NO_WINNER;
+    }
+
+    /**
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the cell index.
+     */
+    public static int cell(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    /**
+     * Converts a cell index into a move array.
+     *
+     * @param cell the cell index.
+     * @return an array of two integers representing the row and column.
+     */
+    public static int[] toMove(int cell) {
+        return new int[]{cell / SIZE, cell % SIZE};
+    }
+
+    /**
+     * Builds a state from a board where each cell holds the turn it was played at, or -1.
+     *
+     * @param board the game board.
+     * @param turn the current turn number.
+     * @return the equivalent state.
+     */
+    public static long fromBoard(int[][] board, int turn) {
+        long state = (long) turn << TURN_SHIFT | (AGES_MASK << AGES_SHIFT);
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                int value = board[i][j];
+                if (value == -1)
+                    continue;
+                int cell = cell(i, j);
+                state |= 1L << (cell + (value % 2) * O_SHIFT);
+                int age = turn - value;
+                if (age >= 1 && age <= WINDOW) {
+                    int shift = AGES_SHIFT + (age - 1) * 4;
+                    state = (state & ~((long) NONE << shift)) | ((long) cell << shift);
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Builds a board where each cell holds the turn it was played at, or -1 if it is empty.
+     *
+     * @param state the game state.
+     * @return a new 2D array representing the state.
+     */
+    public static int[][] toBoard(long state) {
+        int[][] board = new int[SIZE][SIZE];
+        for (int[] row : board)
+            Arrays.fill(row, -1);
+        int turn = turn(state);
+        for (int age = 1; age <= WINDOW; age++) {
+            int cell = pieceAt(state, age);
+            if (cell != NONE)
+                board[cell / SIZE][cell % SIZE] = turn - age;
+        }
+        return board;
+    }
+}
@@ -1,15 +1,11 @@
 //the default limit tree is 7 and the default exploration rate is 0.
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 public class Game {
-    private static final int SIZE = 3; // The size of the game board
-    private static int xCounter = 0; // Counter for X wins
-    private static int oCounter = 0; // Counter for O wins
-    private static int tCounter = 0; // Counter for games ending after 100 moves
-
-    private static int xWonTurn = 0;
-
-    private static int oWonTurn = 0;
+    private static final int SIZE = BitBoard.SIZE; // The size of the game board
+    static final int MAX_TURNS = 100; // Games are stopped after this many turns
 
 
     /**
@@ -34,34 +30,53 @@ public class Game {
                     "\nchoose 3 for play against Q-learning algorithm" +
                     "\nchoose 4 for change exploration rate for QL algorithm" +
                     "\nchoose 5 for change limit for MiniMax algorithm" +
-                    "\nchoose 6 for exit\n");
+                    "\nchoose 6 for change time budget for MiniMax algorithm" +
+                    "\nchoose 7 for exit\n");
             number = scanner.nextInt();
 
             switch (number) {
                 case 1:
-                    int gameNumber = 1;
-                    while (gameNumber <= 1000) {
-                        System.out.println("game number " + gameNumber + ":\n----------------\n");
-                        game(agentQL, agentMM2);
-                        gameNumber++;
+                    ((QLearningAgent) agentQL).startJournal();
+                    GameStats stats = new GameStats();
+                    Telemetry telemetry = new Telemetry();
+                    telemetry.watch("X", ((QLearningAgent) agentQL).getQTable());
+                    telemetry.start(Paths.get("Telemetry.jsonl"), 5000);
+                    GameLog log = null;
+                    GameListener recorded = GameListener.NONE;
+                    try {
+                        log = new GameLog(Paths.get("Games.log"));
+                        recorded = log.listener("ql", "minmax");
+                    } catch (IOException e) {
+                        e.printStackTrace(); // train anyway, without recording the games
+                    }
+                    try {
+                        GameListener listener = GameListener.both(telemetry, recorded);
+                        int gameNumber = 1;
+                        while (gameNumber <= 1000) {
+                            System.out.println("game number " + gameNumber + ":\n----------------\n");
+                            game(agentQL, agentMM2, stats, true, listener);
+                            gameNumber++;
+                        }
+                    } finally {
+                        telemetry.close();
+                        if (log != null) {
+                            try {
+                                log.close();
+                            } catch (IOException e) {
+                                e.printStackTrace();
+                            }
+                        }
                     }
 
-                    System.out.println("X won " + xCounter + " times with avg turn of " + ((double)xWonTurn)/xCounter + " per game\n" +
-                            "O won " + oCounter + " times with avg turn of " + ((double)oWonTurn)/oCounter + " per game\n" +
-                            "the game stop after 100 turns " + tCounter + " times\n" +
-                            "total avg turns per game = " +((double)(xWonTurn+oWonTurn))/(xCounter+oCounter));
+                    System.out.println(stats.report());
+                    System.out.println(telemetry.report());
 
 
                     ((QLearningAgent) agentQL).writeData();
-                    xCounter = 0;
-                    oCounter = 0;
-                    xWonTurn = 0;
-                    oWonTurn = 0;
-                    tCounter = 0;
                     break;
 
                 case 2:
-                    game(agentMM, user);
+                    game(agentMM, user, new GameStats(), true);
                     System.out.println("enter 1 for return menu or any integer to exit: ");
                     number = scanner.nextInt();
                     if (number != 1)
@@ -69,7 +84,7 @@ public class Game {
                     break;
 
                 case 3:
-                    game(agentQL, user);
+                    game(agentQL, user, new GameStats(), true);
                     System.out.println("enter 1 for return menu or any integer to exit: ");
                     number = scanner.nextInt();
                     if (number != 1)
@@ -81,82 +96,135 @@ public class Game {
                     ((QLearningAgent) agentQL).changeRandom(scanner.nextDouble());
                     break;
 
-                case 5:
+                case 5: {
+                    MinMaxAgent[] agents = chooseMinMax(scanner, agentMM, agentMM2);
                     System.out.println("enter the new limit(number between 1 - 10): ");
                     int newLimit = scanner.nextInt();
-                    ((MinMaxAgent) agentMM).changeLimit(newLimit);
+                    for (MinMaxAgent agent : agents)
+                        agent.changeLimit(newLimit);
+                    break;
+                }
+
+                case 6: {
+                    MinMaxAgent[] agents = chooseMinMax(scanner, agentMM, agentMM2);
+                    System.out.println("enter the new time budget per move in milliseconds(0 for no budget): ");
+                    long newBudget = scanner.nextLong();
+                    for (MinMaxAgent agent : agents)
+                        agent.changeTimeBudget(newBudget);
                     break;
+                }
 
-                case 6:
+                case 7:
                     loop = false;
                     break;
 
                 default:
-                    System.out.println("choose only 1 or 2 or 3 or 4");
+                    System.out.println("choose only a number between 1 and 7");
 
             }
         }
     }
 
+    /**
+     * Asks which of the Min-Max agents of the menu to change: the one the user plays against,
+     * the one the Q-learning agent trains against, or both.
+     *
+     * @param scanner the input of the menu.
+     * @param agentMM the Min-Max agent the user plays against.
+     * @param agentMM2 the Min-Max agent the Q-learning agent trains against.
+     * @return the agents to change.
+     */
+    private static MinMaxAgent[] chooseMinMax(Scanner scanner, Agent agentMM, Agent agentMM2){
+        System.out.println("enter 1 for the Min-Max you play against, 2 for the Min-Max that Q-learning trains against" +
+                " or 3 for both: ");
+        switch (scanner.nextInt()) {
+            case 1:
+                return new MinMaxAgent[]{(MinMaxAgent) agentMM};
+            case 2:
+                return new MinMaxAgent[]{(MinMaxAgent) agentMM2};
+            default:
+                return new MinMaxAgent[]{(MinMaxAgent) agentMM, (MinMaxAgent) agentMM2};
+        }
+    }
+
     /**
      * Simulates a single game between two agents.
      *
      * @param xPlayer the agent playing as X.
      * @param oPlayer the agent playing as O.
+     * @param stats the run statistics to record the result in.
+     * @param verbose true to print the board after every move.
+     */
+    static void game(Agent xPlayer, Agent oPlayer, GameStats stats, boolean verbose){
+        game(xPlayer, oPlayer, stats, verbose, GameListener.NONE);
+    }
+
+    /**
+     * Simulates a single game between two agents, and reports every move and the result to a listener.
+     *
+     * @param xPlayer the agent playing as X.
+     * @param oPlayer the agent playing as O.
+     * @param stats the run statistics to record the result in.
+     * @param verbose true to print the board after every move.
+     * @param listener the listener to report to, or {@link GameListener#NONE}.
      */
-    private static void game(Agent xPlayer, Agent oPlayer){
+    static void game(Agent xPlayer, Agent oPlayer, GameStats stats, boolean verbose, GameListener listener){
 
-        int[][] board = new int[SIZE][SIZE], oldBoard = new int[SIZE][SIZE];
-        restartBoard(board);
+        long start = System.nanoTime();
+        boolean timed = listener != GameListener.NONE;
+        long board = BitBoard.EMPTY, oldBoard;
         int turn = 0;
         boolean gameOver = false;
-        int[] playMove;
+        int playCell;
 
 
-        printBoard(board);
+        if(verbose)
+            printBoard(board);
 
         while (!gameOver){
-            if(turn % 2 == 0){
-                playMove = xPlayer.getPlayMove(board, turn);
-                oldBoard = xPlayer.copy(board);
-            }
-            else{
-                playMove = oPlayer.getPlayMove(board, turn);
-                oldBoard = oPlayer.copy(board);
-            }
-
-            if(turn >= 6){
-                deleteOldest(board, turn);
-            }
-            updateBoard(board, playMove, turn);
+            long moveStart = timed ? System.nanoTime() : 0;
+            if(turn % 2 == 0)
+                playCell = xPlayer.getPlayCell(board);
+            else
+                playCell = oPlayer.getPlayCell(board);
+            if(timed)
+                listener.move(board, playCell, System.nanoTime() - moveStart);
+
+            oldBoard = board;
+            board = updateBoard(board, playCell);
             gameOver = checkGameOver(board);
 
             if(xPlayer instanceof QLearningAgent)
-                ((QLearningAgent)xPlayer).updateQTable(oldBoard, playMove, turn, getReward(gameOver, turn),board);
+                ((QLearningAgent)xPlayer).updateQTable(oldBoard, playCell, getReward(gameOver, turn), board);
             else if(oPlayer instanceof QLearningAgent)
-                ((QLearningAgent)oPlayer).updateQTable(oldBoard, playMove, turn, getReward(gameOver, turn),board);
+                ((QLearningAgent)oPlayer).updateQTable(oldBoard, playCell, getReward(gameOver, turn), board);
 
-            printBoard(board);
+            if(verbose)
+                printBoard(board);
             if(gameOver){
                 if(turn % 2 == 0) {
-                    System.out.println("X WON THE GAME AFTER " + (turn+1) + " TURNS");
-                    xCounter++;
-                    xWonTurn += turn + 1;
+                    if(verbose)
+                        System.out.println("X WON THE GAME AFTER " + (turn+1) + " TURNS");
+                    stats.xWon(turn + 1);
                 }
                 else {
-                    System.out.println("O WON THE GAME AFTER " + (turn+1) + " TURNS");
-                    oCounter++;
-                    oWonTurn += turn + 1;
+                    if(verbose)
+                        System.out.println("O WON THE GAME AFTER " + (turn+1) + " TURNS");
+                    stats.oWon(turn + 1);
                 }
             }
 
             turn++;
 
-            if(turn >= 100){
-                tCounter++;
+            if(!gameOver && turn >= MAX_TURNS){
+                stats.stopped();
                 gameOver = true;
             }
         }
+        long elapsed = System.nanoTime() - start;
+        stats.addTime(elapsed);
+        if(timed)
+            listener.gameOver(BitBoard.winner(board), turn, elapsed);
 
     }
 
@@ -167,7 +235,7 @@ public class Game {
      * @param turn the current turn.
      * @return the reward value.
      */
-    private static int getReward(boolean gameOver, int turn) {
+    static int getReward(boolean gameOver, int turn) {
         if(gameOver && turn % 2 == 0)
             return 1000;
         else if(gameOver && turn % 2 != 0)
@@ -181,78 +249,23 @@ public class Game {
      * @param board the current state of the board.
      * @return true if the game is over; false otherwise.
      */
-    private static boolean checkGameOver(int[][] board){
-        for (int i = 0; i < 3; i++) {
-            if (isWinningLine(board[i][0], board[i][1], board[i][2]) ||
-                    isWinningLine(board[0][i], board[1][i], board[2][i])) {
-                return true;
-            }
-        }
-
-        // Check diagonals
-        if (isWinningLine(board[0][0], board[1][1], board[2][2]) ||
-                isWinningLine(board[0][2], board[1][1], board[2][0])) {
-            return true;
-        }
-
-        return false;
-    }
-
-    /**
-     * Checks if a line contains all even (X) or all odd (O) values and is not empty.
-     *
-     * @param a the first cell value.
-     * @param b the second cell value.
-     * @param c the third cell value.
-     * @return true if the line is a winning line; false otherwise.
-     */
-    private static boolean isWinningLine(int a, int b, int c) {
-        // Check if all are even (X) or odd (O) and not empty (-1)
-        return (a != -1 && a % 2 == b % 2 && b % 2 == c % 2);
+    private static boolean checkGameOver(long board){
+        return BitBoard.winner(board) != BitBoard.NO_WINNER;
     }
 
     /**
-     * Updates the board with the current move.
+     * Updates the board with the current move. The oldest move (older than 6 turns)
+     * disappears before the new one is placed.
      *
      * @param board the current state of the board.
-     * @param playMove the move to update on the board.
-     * @param turn the current turn.
+     * @param playCell the cell index of the move.
+     * @return the state of the board after the move.
      */
-    private static void updateBoard(int[][] board, int[] playMove, int turn){
-        if(board[playMove[0]][playMove[1]] == -1)
-            board[playMove[0]][playMove[1]] = turn;
-        else
-            System.out.println("error spot already taken");
-    }
-
-    /**
-     * Deletes the oldest move on the board (moves older than 6 turns).
-     *
-     * @param board the current state of the board.
-     * @param turn the current turn.
-     */
-    private static void deleteOldest(int[][] board, int turn){
-        for(int i = 0; i < SIZE; i++){
-            for(int j = 0; j < SIZE; j++){
-                if(board[i][j] == turn - 6 && board[i][j] != -1){
-                    board[i][j] = -1;
-                    break;
-                }
-            }
-        }
-    }
-
-    /**
-     * Resets the board by setting all cells to -1.
-     *
-     * @param board the board to reset.
-     */
-    private static void restartBoard(int[][] board){
-        for(int i = 0; i < SIZE; i++){
-            for(int j = 0; j < SIZE; j++){
-                board[i][j] = -1;
-            }
-        }
+    static long updateBoard(long board, int playCell){
+        if((BitBoard.emptyCells(board) & (1 << playCell)) != 0)
+            return BitBoard.apply(board, playCell);
+        System.out.println("error spot already taken");
+        return BitBoard.apply(board, BitBoard.NONE);
     }
 
     /**
@@ -260,13 +273,15 @@ public class Game {
      *
      * @param board the board to print.
      */
-    private static void printBoard(int[][] board){
+    private static void printBoard(long board){
+        int xMask = BitBoard.xMask(board), oMask = BitBoard.oMask(board);
         for(int i = 0; i < SIZE; i++){
             for(int j = 0; j < SIZE; j++){
-                if(board[i][j] == -1) {
+                int bit = 1 << BitBoard.cell(i, j);
+                if((xMask & bit) == 0 && (oMask & bit) == 0) {
                     System.out.print(" ");
                 }
-                else if (board[i][j] % 2 == 0) {
+                else if ((xMask & bit) != 0) {
                     System.out.print("X");
                 }
                 else{
@@ -0,0 +1,61 @@
+/**
+ * Receives the events of the games played by {@link Game#game(Agent, Agent, GameStats, boolean, GameListener)}.
+ * Every method does nothing by default. Games played on several threads report to their listener
+ * concurrently, so implementations shared between threads have to be thread-safe.
+ */
+public interface GameListener {
+
+    /**
+     * Ignores every event. Games played without a listener don't time the moves.
+     */
+    GameListener NONE = new GameListener() {
+    };
+
+    /**
+     * Combines two listeners.
+     *
+     * @param first the listener that is told first.
+     * @param second the listener that is told second.
+     * @return a listener that reports every event to both, or one of them if the other is {@link #NONE}.
+     */
+    static GameListener both(GameListener first, GameListener second) {
+        if (first == NONE)
+            return second;
+        if (second == NONE)
+            return first;
+        return new GameListener() {
+            @Override
+            public void move(long state, int cell, long nanos) {
+                first.move(state, cell, nanos);
+                second.move(state, cell, nanos);
+            }
+
+            @Override
+            public void gameOver(int winner, int turns, long nanos) {
+                first.gameOver(winner, turns, nanos);
+                second.gameOver(winner, turns, nanos);
+            }
+        };
+    }
+
+    /**
+     * An agent chose a move.
+     *
+     * @param state the state the agent played from.
+     * @param cell the cell index of the move.
+     * @param nanos the time the agent took to choose the move.
+     */
+    default void move(long state, int cell, long nanos) {
+    }
+
+    /**
+     * A game is over.
+     *
+     * @param winner {@link BitBoard#X}, {@link BitBoard#O}, or {@link BitBoard#NO_WINNER} if the game was stopped
+     *               after {@link Game#MAX_TURNS} turns.
+     * @param turns the number of turns played.
+     * @param nanos the time the game took.
+     */
+    default void gameOver(int winner, int turns, long nanos) {
+    }
+}
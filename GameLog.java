@@ -0,0 +1,399 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Append-only binary log of played games, for analyzing them afterwards (see {@link GameLogStats}).
+ * <p>
+ * The file starts with a magic number and a version, followed by records of two types:
+ * <pre>
+ * AGENT  type, id, name length, name in UTF-8           names an agent id for the records after it
+ * GAME   type, X agent id, O agent id, winner, turns,
+ *        then for every turn: cell, decision time       the decision time in nanoseconds as a varint
+ * </pre>
+ * A move takes 2 to 4 bytes for decisions between 128 nanoseconds and 268 milliseconds. The winner is
+ * {@link BitBoard#X}, {@link BitBoard#O} or {@link BitBoard#NO_WINNER} as a signed byte. Agent ids are
+ * given out again every time the log is opened, and an AGENT record always comes before the games that use
+ * its id, so a reader only has to remember the last name of each id. The last id is named "other" and
+ * shared by all the agents that come after the others have been given out.
+ * <p>
+ * The games are recorded on the game threads by {@link Recorder}s into byte arrays, which a single
+ * background thread copies into a direct buffer and writes to the file channel when the buffer is full or
+ * no more games are waiting. If the writer can't keep up, recording a game waits for room in the queue.
+ * <p>
+ * {@link #replay(Path, Visitor)} maps the file into memory a window at a time and visits the games one by
+ * one, so logs of any size are read without loading them. A record torn by a crash at the end of the log
+ * is ignored by the reader, and cut off when the log is opened again for appending, so that the games
+ * appended after it can be read.
+ */
+public class GameLog implements Closeable {
+
+    private static final int MAGIC = 0x474C4F47; // "GLOG"
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+    private static final byte AGENT = 1;
+    private static final byte GAME = 2;
+    private static final int GAME_HEADER = 5;
+    private static final int MAX_AGENTS = 256;
+    private static final String OTHER = "other"; // The name of the last agent id
+    private static final int MAX_TURNS = 255; // The turn count is one byte
+    private static final int MAX_MOVE = 11; // A cell and a varint of up to 10 bytes
+    private static final int QUEUE = 4096; // Records waiting for the writer
+    private static final long WINDOW = 1L << 28; // Bytes mapped at a time by the reader
+    private static final byte[] STOP = new byte[0];
+
+    private final FileChannel channel;
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private final Map<String, Integer> agents = new HashMap<>();
+    private final ThreadLocal<Map<String, Recorder>> recorders = ThreadLocal.withInitial(HashMap::new);
+    private final Thread writer;
+    private boolean closed = false;
+
+    /**
+     * Receives the games of a log, in the order they were written.
+     */
+    public interface Visitor {
+
+        /**
+         * A game of the log. The arrays are reused for the next game, and only their first
+         * {@code turns} entries belong to this one.
+         *
+         * @param xAgent the name of the agent that played X.
+         * @param oAgent the name of the agent that played O.
+         * @param winner {@link BitBoard#X}, {@link BitBoard#O} or {@link BitBoard#NO_WINNER}.
+         * @param turns the number of turns played.
+         * @param cells the cell played at every turn.
+         * @param nanos the time the agent took to choose every move.
+         */
+        void game(String xAgent, String oAgent, int winner, int turns, byte[] cells, long[] nanos);
+    }
+
+    /**
+     * Opens a log for appending, and creates it if it doesn't exist. A record torn at the end of the
+     * log is cut off first.
+     *
+     * @param file the log file.
+     * @throws IOException if the file can't be opened or is not a game log.
+     */
+    public GameLog(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+        else {
+            long end = scan(channel, file, null);
+            if (end < channel.size())
+                channel.truncate(end);
+            channel.position(end);
+        }
+        writer = new Thread(this::write, "game-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Creates a recorder for the games between two agents. A recorder records one game at a time, so every
+     * thread that plays games needs its own.
+     *
+     * @param xAgent the name of the agent that plays X.
+     * @param oAgent the name of the agent that plays O.
+     * @return the recorder.
+     */
+    public Recorder recorder(String xAgent, String oAgent) {
+        return new Recorder(agent(xAgent), agent(oAgent));
+    }
+
+    /**
+     * Creates a listener that records the games between two agents, for
+     * {@link Game#game(Agent, Agent, GameStats, boolean, GameListener)}. Every thread that reports to the
+     * listener records its games with its own recorder.
+     *
+     * @param xAgent the name of the agent that plays X.
+     * @param oAgent the name of the agent that plays O.
+     * @return the listener.
+     */
+    public GameListener listener(String xAgent, String oAgent) {
+        String key = xAgent + '\n' + oAgent;
+        return new GameListener() {
+            @Override
+            public void move(long state, int cell, long nanos) {
+                Recorder recorder = recorders.get().computeIfAbsent(key, k -> recorder(xAgent, oAgent));
+                if (BitBoard.turn(state) == 0)
+                    recorder.reset(); // a game that failed halfway was never finished
+                recorder.move(cell, nanos);
+            }
+
+            @Override
+            public void gameOver(int winner, int turns, long nanos) {
+                recorders.get().computeIfAbsent(key, k -> recorder(xAgent, oAgent)).gameOver(winner);
+            }
+        };
+    }
+
+    /**
+     * Finds the id of an agent, and writes its name to the log the first time. Once all the other ids
+     * are given out, the agent gets the id of "other".
+     */
+    private synchronized byte agent(String name) {
+        Integer id = agents.get(name);
+        if (id == null && agents.size() >= MAX_AGENTS - 1) {
+            name = OTHER;
+            id = agents.get(OTHER);
+        }
+        if (id == null) {
+            id = agents.size();
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, 255);
+            byte[] record = new byte[3 + length];
+            record[0] = AGENT;
+            record[1] = (byte) (int) id;
+            record[2] = (byte) length;
+            System.arraycopy(bytes, 0, record, 3, length);
+            submit(record);
+            agents.put(name, id);
+        }
+        return (byte) (int) id;
+    }
+
+    private void submit(byte[] record) {
+        try {
+            queue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the records of the queue until the log is closed. After a write error the records
+     * are dropped, so that the games are never held up by the log.
+     */
+    private void write() {
+        boolean failed = false;
+        try {
+            while (true) {
+                byte[] record = queue.take();
+                if (record == STOP)
+                    break;
+                if (failed)
+                    continue;
+                try {
+                    if (buffer.remaining() < record.length)
+                        flush();
+                    buffer.put(record);
+                    if (queue.isEmpty())
+                        flush();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    failed = true;
+                }
+            }
+            if (!failed)
+                flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Writes the recorded games and closes the file. Games recorded after closing are lost.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        submit(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * Reads the games of a log in order.
+     *
+     * @param file the log file.
+     * @param visitor the visitor that receives the games.
+     * @return the number of games read.
+     * @throws IOException if the file can't be read or is not a game log.
+     */
+    public static long replay(Path file, Visitor visitor) throws IOException {
+        long[] games = {0};
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            scan(in, file, (xAgent, oAgent, winner, turns, cells, nanos) -> {
+                visitor.game(xAgent, oAgent, winner, turns, cells, nanos);
+                games[0]++;
+            });
+        }
+        return games[0];
+    }
+
+    /**
+     * Reads the records of a log in order.
+     *
+     * @param visitor the visitor that receives the games, or null to only find the end.
+     * @return the end of the last whole record in the file.
+     */
+    private static long scan(FileChannel in, Path file, Visitor visitor) throws IOException {
+        checkHeader(in, file);
+        long size = in.size();
+        String[] names = new String[MAX_AGENTS];
+        byte[] cells = new byte[MAX_TURNS];
+        long[] nanos = new long[MAX_TURNS];
+        long position = HEADER;
+        while (position < size) {
+            long length = Math.min(WINDOW, size - position);
+            MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int record = 0;
+            try {
+                while (window.hasRemaining()) {
+                    record = window.position();
+                    byte type = window.get();
+                    if (type == AGENT) {
+                        int id = window.get() & 0xFF;
+                        byte[] name = new byte[window.get() & 0xFF];
+                        window.get(name);
+                        names[id] = new String(name, StandardCharsets.UTF_8);
+                    }
+                    else if (type == GAME) {
+                        int xAgent = window.get() & 0xFF;
+                        int oAgent = window.get() & 0xFF;
+                        int winner = window.get();
+                        int turns = window.get() & 0xFF;
+                        for (int turn = 0; turn < turns; turn++) {
+                            cells[turn] = window.get();
+                            nanos[turn] = readVarLong(window);
+                        }
+                        if (visitor != null)
+                            visitor.game(name(names, xAgent), name(names, oAgent), winner, turns, cells, nanos);
+                    }
+                    else {
+                        throw new IOException("unknown record type " + type + " at byte " + (position + record)
+                                + " of " + file);
+                    }
+                }
+                record = window.position();
+            } catch (BufferUnderflowException e) {
+                // a record that goes past the window is read again from the next one
+                if (position + length == size)
+                    return position + record;
+            }
+            position += record;
+        }
+        return position;
+    }
+
+    private static String name(String[] names, int id) {
+        return names[id] != null ? names[id] : "#" + id;
+    }
+
+    private static void checkHeader(FileChannel in, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        while (header.hasRemaining() && in.read(header, header.position()) >= 0) {
+            // read until the header is full or the file ends
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC)
+            throw new IOException(file + " is not a game log");
+        if (header.getInt(4) != VERSION)
+            throw new IOException(file + " has unsupported version " + header.getInt(4));
+    }
+
+    private static int putVarLong(byte[] bytes, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Records the games between two agents, one at a time, and hands every finished game to the writer.
+     */
+    public final class Recorder {
+        private final byte xAgent;
+        private final byte oAgent;
+        private final byte[] record = new byte[GAME_HEADER + MAX_TURNS * MAX_MOVE];
+        private int length = GAME_HEADER;
+        private int turns = 0;
+
+        private Recorder(byte xAgent, byte oAgent) {
+            this.xAgent = xAgent;
+            this.oAgent = oAgent;
+        }
+
+        /**
+         * Records the next move of the game.
+         *
+         * @param cell the cell index of the move.
+         * @param nanos the time the agent took to choose the move.
+         * @throws IllegalStateException if the game already has {@value GameLog#MAX_TURNS} moves.
+         */
+        public void move(int cell, long nanos) {
+            if (turns == MAX_TURNS)
+                throw new IllegalStateException("a logged game has at most " + MAX_TURNS + " turns");
+            record[length++] = (byte) cell;
+            length = putVarLong(record, length, Math.max(nanos, 0));
+            turns++;
+        }
+
+        /**
+         * Finishes the game and starts the next one.
+         *
+         * @param winner {@link BitBoard#X}, {@link BitBoard#O} or {@link BitBoard#NO_WINNER}.
+         */
+        public void gameOver(int winner) {
+            record[0] = GAME;
+            record[1] = xAgent;
+            record[2] = oAgent;
+            record[3] = (byte) winner;
+            record[4] = (byte) turns;
+            submit(Arrays.copyOf(record, length));
+            reset();
+        }
+
+        /**
+         * Forgets the moves of an unfinished game.
+         */
+        public void reset() {
+            length = GAME_HEADER;
+            turns = 0;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of the games of {@link GameLog}s: the results of every pairing of agents, the most frequent
+ * openings and the decision times of every agent.
+ * <pre>
+ * java GameLogStats [--openings 10] log...
+ * </pre>
+ * The logs are read as a stream, so the memory used depends on the number of agents and not on the
+ * number of games. An opening is the first two moves of a game.
+ */
+public class GameLogStats implements GameLog.Visitor {
+
+    private static final int OPENINGS = BitBoard.CELLS * BitBoard.CELLS;
+
+    private final Map<String, long[]> results = new TreeMap<>(); // games, X wins, O wins, turns
+    private final Map<String, LatencyHistogram> decisions = new TreeMap<>();
+    private final long[] openings = new long[OPENINGS];
+    private long games = 0;
+    // the agents of the previous game, whose entries are found again without a lookup: the log gives
+    // the same name objects to the games of a pairing
+    private String lastX, lastO;
+    private long[] lastResult;
+    private LatencyHistogram lastXTimes, lastOTimes;
+
+    /**
+     * Entry point for the statistics.
+     *
+     * @param args the options and the log files.
+     */
+    public static void main(String[] args) throws IOException {
+        int top = 10;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--openings"))
+                top = Integer.parseInt(args[++i]);
+            else
+                files.add(args[i]);
+        }
+        if (files.isEmpty()) {
+            System.out.println("usage: java GameLogStats [--openings 10] log...");
+            return;
+        }
+        GameLogStats stats = new GameLogStats();
+        long start = System.nanoTime();
+        for (String file : files)
+            GameLog.replay(Paths.get(file), stats);
+        System.out.println(stats.report(top));
+        System.out.printf(Locale.ROOT, "read in %.2f seconds%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    @Override
+    public void game(String xAgent, String oAgent, int winner, int turns, byte[] cells, long[] nanos) {
+        games++;
+        if (xAgent != lastX || oAgent != lastO) {
+            lastX = xAgent;
+            lastO = oAgent;
+            lastResult = results.computeIfAbsent(xAgent + " vs " + oAgent, k -> new long[4]);
+            lastXTimes = decisions.computeIfAbsent(xAgent, k -> new LatencyHistogram());
+            lastOTimes = decisions.computeIfAbsent(oAgent, k -> new LatencyHistogram());
+        }
+        long[] result = lastResult;
+        result[0]++;
+        if (winner == BitBoard.X)
+            result[1]++;
+        else if (winner == BitBoard.O)
+            result[2]++;
+        result[3] += turns;
+
+        if (turns >= 2 && cells[0] < BitBoard.CELLS && cells[1] < BitBoard.CELLS)
+            openings[cells[0] * BitBoard.CELLS + cells[1]]++;
+
+        for (int turn = 0; turn < turns; turn++)
+            (turn % 2 == 0 ? lastXTimes : lastOTimes).record(nanos[turn]);
+    }
+
+    /**
+     * @param top the number of openings to show.
+     * @return the statistics of the games read so far.
+     */
+    public String report(int top) {
+        StringBuilder report = new StringBuilder();
+        report.append(games).append(" games\n");
+        for (Map.Entry<String, long[]> pairing : results.entrySet()) {
+            long[] result = pairing.getValue();
+            report.append(String.format(Locale.ROOT, "%s: %d games, X %.1f%%, O %.1f%%, stopped %.1f%%,"
+                            + " %.1f turns on average%n", pairing.getKey(), result[0], 100.0 * result[1] / result[0],
+                    100.0 * result[2] / result[0], 100.0 * (result[0] - result[1] - result[2]) / result[0],
+                    (double) result[3] / result[0]));
+        }
+
+        report.append("openings:\n");
+        Integer[] order = new Integer[OPENINGS];
+        for (int i = 0; i < OPENINGS; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(openings[b], openings[a]));
+        for (int i = 0; i < Math.min(top, OPENINGS) && openings[order[i]] > 0; i++) {
+            int opening = order[i];
+            report.append(String.format(Locale.ROOT, "  %d %d: %d games (%.1f%%)%n", opening / BitBoard.CELLS,
+                    opening % BitBoard.CELLS, openings[opening], 100.0 * openings[opening] / games));
+        }
+
+        report.append("decision times:\n");
+        for (Map.Entry<String, LatencyHistogram> agent : decisions.entrySet()) {
+            LatencyHistogram histogram = agent.getValue();
+            report.append("  ").append(agent.getKey()).append(": ").append(histogram.getCount())
+                    .append(" moves, p50 ").append(histogram.getPercentile(50) / 1000)
+                    .append("us p99 ").append(histogram.getPercentile(99) / 1000)
+                    .append("us max ").append(histogram.getMax() / 1000).append("us\n");
+        }
+        return report.toString();
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @param xAgent the name of the agent that played X.
+     * @param oAgent the name of the agent that played O.
+     * @return the games, X wins, O wins and total turns of the pairing, or null if it never played.
+     */
+    public long[] getResults(String xAgent, String oAgent) {
+        return results.get(xAgent + " vs " + oAgent);
+    }
+
+    /**
+     * @param agent the name of an agent.
+     * @return the histogram of the time the agent took per move, in nanoseconds, or null if it never played.
+     */
+    public LatencyHistogram getDecisionTimes(String agent) {
+        return decisions.get(agent);
+    }
+}
@@ -0,0 +1,519 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hosts games between remote players and the agents over TCP, many sessions at once.
+ * <pre>
+ * java GameServer [--port 7777] [--workers 8] [--queue 1024] [--max-millis 1000] [--log file]
+ * </pre>
+ * A single thread serves all the connections with a {@link Selector}: it reads the commands, checks the moves
+ * and writes the answers, and never waits for a client. The moves of the agents are computed on a bounded
+ * pool of worker threads and handed back to the selector thread when they are done.
+ * <p>
+ * The protocol is one command per line, and every connection is one session that can play games one
+ * after the other:
+ * <pre>
+ * NEW agent side   starts a game against an agent given as in {@link Tournament}, the client playing
+ *                  side X or O. Answered with OK, then the move of the agent if it plays X. The time
+ *                  budget of the agent is cut down to --max-millis and it searches on one thread.
+ * PLAY cell        plays a cell, 0 to 8 row by row. Answered with the move of the agent.
+ * STATS            answered with the counters of the server as a JSON object.
+ * QUIT             closes the connection.
+ * </pre>
+ * The server answers with "OK", "MOVE cell", "END X|O|DRAW" when a game is over (after
+ * {@link Game#MAX_TURNS} turns it is a draw), "ERROR message", or "BUSY" when the queue of the workers is
+ * full, in which case the command was not taken and can be sent again.
+ * <p>
+ * Every worker thread keeps its own agent of each type and parameters, which it uses for all the sessions,
+ * up to 16 agents of which the least recently used is dropped. The agents share their read-only
+ * data: the Q-tables are loaded once and never learn, and the Min-Max agents share their transposition
+ * table anyway.
+ * <p>
+ * With --log every finished game is appended to a {@link GameLog}, the remote player named "client". The
+ * decision time of a move of the agent is the time from the move of the client to the answer, and that of
+ * a move of the client the time from the answer to its move.
+ */
+public class GameServer implements Closeable {
+
+    private static final int MAX_LINE = 256;
+    private static final int AGENTS = 16; // Agents kept by a worker thread
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ThreadPoolExecutor workers;
+    private final Queue<Runnable> done = new ConcurrentLinkedQueue<>(); // Results of the workers to apply
+    private final ThreadLocal<Map<String, Agent>> agents = ThreadLocal.withInitial(() ->
+            new LinkedHashMap<String, Agent>(AGENTS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Agent> eldest) {
+                    return size() > AGENTS;
+                }
+            });
+    private static final Map<Character, QTable> qTables = new ConcurrentHashMap<>();
+
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+    private final LatencyHistogram moveTimes = new LatencyHistogram();
+    private GameLog log = null;
+    private long maxMillis = 1000;
+    private volatile boolean running = true;
+
+    /**
+     * Entry point for the server.
+     *
+     * @param args the server options.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 7777, workers = Runtime.getRuntime().availableProcessors(), queue = 1024;
+        long maxMillis = 1000;
+        String logFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue":
+                    queue = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-millis":
+                    maxMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--log":
+                    logFile = args[++i];
+                    break;
+                default:
+                    System.out.println("unknown option " + args[i]);
+                    return;
+            }
+        }
+        GameServer server = new GameServer(port, workers, queue);
+        GameLog log = logFile != null ? new GameLog(Paths.get(logFile)) : null;
+        server.changeLog(log);
+        server.changeMaxMillis(maxMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println(server.stats());
+            if (log == null)
+                return;
+            try {
+                log.close(); // the server is stopped by a signal, without leaving run()
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        System.out.println("listening on port " + server.getPort() + " with " + workers + " workers");
+        server.run();
+    }
+
+    /**
+     * Opens the server socket on the loopback interface. Connections are only accepted once
+     * {@link #run()} is called.
+     *
+     * @param port the port to listen on, or 0 for any free port.
+     * @param workers the number of threads that compute the moves of the agents.
+     * @param queueCapacity the number of moves that can wait for a worker before the server answers BUSY.
+     */
+    public GameServer(int port, int workers, int queueCapacity) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "game-worker-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Sets the log of the finished games. It is closed when the server stops.
+     *
+     * @param log the log, or null to stop logging. Only set before {@link #run()}.
+     */
+    public void changeLog(GameLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Sets the largest time budget of a move of the agents, whatever the clients ask for.
+     *
+     * @param millis the budget in milliseconds. Only set before {@link #run()}.
+     */
+    public void changeMaxMillis(long millis) {
+        if (millis < 0)
+            return;
+        maxMillis = millis;
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Serves the connections on the calling thread until the server is closed.
+     */
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Runnable result;
+                while ((result = done.poll()) != null) {
+                    try {
+                        result.run();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid())
+                            continue;
+                        if (key.isAcceptable())
+                            accept();
+                        else {
+                            if (key.isReadable())
+                                read((Session) key.attachment());
+                            if (key.isValid() && key.isWritable())
+                                flush((Session) key.attachment());
+                        }
+                    } catch (IOException e) {
+                        close((Session) key.attachment());
+                    } catch (RuntimeException e) {
+                        e.printStackTrace(); // a bug in one session doesn't stop the others
+                        close((Session) key.attachment());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            workers.shutdownNow();
+            if (log != null) {
+                try {
+                    log.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops {@link #run()} and closes all the connections.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Session session = new Session(channel);
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        sessions.incrementAndGet();
+    }
+
+    private void read(Session session) throws IOException {
+        if (session.channel.read(session.input) < 0) {
+            close(session);
+            return;
+        }
+        ByteBuffer input = session.input;
+        input.flip();
+        int start = input.position();
+        for (int i = start; i < input.limit(); i++) {
+            if (input.get(i) == '\n') {
+                String line = new String(input.array(), start, i - start, StandardCharsets.US_ASCII).trim();
+                start = i + 1;
+                handle(session, line);
+                if (!session.channel.isOpen())
+                    return;
+            }
+        }
+        input.position(start);
+        input.compact();
+        if (!input.hasRemaining()) {
+            reply(session, "ERROR line too long");
+            close(session);
+        }
+    }
+
+    private void handle(Session session, String line) throws IOException {
+        String[] words = line.split(" ");
+        switch (words[0]) {
+            case "NEW":
+                if (words.length != 3 || !words[2].equals("X") && !words[2].equals("O")) {
+                    reply(session, "ERROR usage: NEW agent X|O");
+                    return;
+                }
+                if (session.thinking) {
+                    reply(session, "ERROR wait for the move of the agent");
+                    return;
+                }
+                try {
+                    // the threads of the workers are the parallelism of the server
+                    session.spec = Tournament.checkAgent(words[1]).capped(maxMillis, 1);
+                } catch (IllegalArgumentException e) {
+                    session.playing = false;
+                    reply(session, "ERROR " + e.getMessage());
+                    return;
+                }
+                session.agentSide = words[2].equals("X") ? BitBoard.O : BitBoard.X;
+                session.state = BitBoard.EMPTY;
+                if (log != null) {
+                    session.recorder = session.agentSide == BitBoard.X
+                            ? log.recorder(session.spec.toString(), "client")
+                            : log.recorder("client", session.spec.toString());
+                }
+                session.answered = System.nanoTime();
+                if (session.agentSide == BitBoard.X && !think(session)) {
+                    session.playing = false;
+                    return;
+                }
+                session.playing = true;
+                games.increment();
+                reply(session, "OK");
+                break;
+            case "PLAY": {
+                int cell = words.length == 2 && words[1].length() == 1 ? words[1].charAt(0) - '0' : -1;
+                if (!session.playing || session.thinking) {
+                    reply(session, "ERROR not your turn");
+                    return;
+                }
+                if (cell < 0 || cell >= BitBoard.CELLS || (BitBoard.emptyCells(session.state) >> cell & 1) == 0) {
+                    reply(session, "ERROR illegal move");
+                    return;
+                }
+                long previous = session.state;
+                long nanos = System.nanoTime() - session.answered;
+                session.state = BitBoard.apply(session.state, cell);
+                boolean over = isOver(session.state);
+                if (!over && !think(session)) {
+                    session.state = previous;
+                    return;
+                }
+                if (session.recorder != null)
+                    session.recorder.move(cell, nanos);
+                if (over)
+                    gameOver(session);
+                break;
+            }
+            case "STATS":
+                reply(session, stats());
+                break;
+            case "QUIT":
+                close(session);
+                break;
+            default:
+                reply(session, "ERROR unknown command " + words[0]);
+        }
+    }
+
+    /**
+     * Hands the move of the agent to the workers.
+     *
+     * @return false if the queue of the workers is full, after answering BUSY.
+     */
+    private boolean think(Session session) throws IOException {
+        long state = session.state;
+        Tournament.AgentSpec spec = session.spec;
+        char player = session.agentSide == BitBoard.X ? 'X' : 'O';
+        long start = System.nanoTime();
+        try {
+            workers.execute(() -> {
+                Runnable result;
+                try {
+                    int cell = agent(spec, player).getPlayCell(state);
+                    result = () -> moved(session, cell, start);
+                } catch (RuntimeException e) {
+                    result = () -> failed(session, e);
+                }
+                done.add(result);
+                selector.wakeup();
+            });
+        } catch (RejectedExecutionException e) {
+            busy.increment();
+            reply(session, "BUSY");
+            return false;
+        }
+        session.thinking = true;
+        return true;
+    }
+
+    private void moved(Session session, int cell, long start) {
+        session.thinking = false;
+        moveTimes.record(System.nanoTime() - start);
+        moves.increment();
+        if (!session.channel.isOpen())
+            return;
+        try {
+            session.state = BitBoard.apply(session.state, cell);
+            if (session.recorder != null)
+                session.recorder.move(cell, System.nanoTime() - start);
+            reply(session, "MOVE " + cell);
+            session.answered = System.nanoTime();
+            gameOver(session);
+        } catch (IOException e) {
+            close(session);
+        }
+    }
+
+    private void failed(Session session, RuntimeException e) {
+        session.thinking = false;
+        session.playing = false;
+        if (!session.channel.isOpen())
+            return;
+        try {
+            reply(session, "ERROR " + e);
+        } catch (IOException io) {
+            close(session);
+        }
+    }
+
+    /**
+     * Ends the game of the session if it is over, and answers with the result.
+     *
+     * @return true if the game is over.
+     */
+    private boolean gameOver(Session session) throws IOException {
+        if (!isOver(session.state))
+            return false;
+        int winner = BitBoard.winner(session.state);
+        session.playing = false;
+        finished.increment();
+        if (session.recorder != null)
+            session.recorder.gameOver(winner);
+        reply(session, "END " + (winner == BitBoard.X ? "X" : winner == BitBoard.O ? "O" : "DRAW"));
+        return true;
+    }
+
+    private static boolean isOver(long state) {
+        return BitBoard.winner(state) != BitBoard.NO_WINNER || BitBoard.turn(state) >= Game.MAX_TURNS;
+    }
+
+    /**
+     * Finds the agent of the calling worker thread for a description and a player, and creates it the first
+     * time.
+     */
+    private Agent agent(Tournament.AgentSpec spec, char player) {
+        return agents.get().computeIfAbsent(spec.toString() + player, key -> {
+            if (!spec.type.equals("ql"))
+                return Tournament.createAgent(spec, player, false);
+            QLearningAgent agent = new QLearningAgent(player,
+                    qTables.computeIfAbsent(player, QLearningAgent::loadTable));
+            agent.changeLearning(false);
+            agent.changeRandom(spec.rate);
+            return agent;
+        });
+    }
+
+    private void reply(Session session, String line) throws IOException {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.US_ASCII);
+        if (session.output.remaining() < bytes.length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(session.output.capacity() * 2,
+                    session.output.position() + bytes.length));
+            session.output.flip();
+            session.output = larger.put(session.output);
+        }
+        session.output.put(bytes);
+        flush(session);
+    }
+
+    /**
+     * Writes as much of the pending output as the socket takes, and waits for the socket to be writable
+     * if some is left.
+     */
+    private void flush(Session session) throws IOException {
+        session.output.flip();
+        session.channel.write(session.output);
+        boolean left = session.output.hasRemaining();
+        session.output.compact();
+        session.key.interestOps(left ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void close(Session session) {
+        if (session == null || !session.channel.isOpen())
+            return;
+        sessions.decrementAndGet();
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the counters of the server as a JSON object on one line.
+     */
+    public String stats() {
+        return "{\"sessions\":" + sessions.get() + ",\"games\":" + games.sum() + ",\"finished\":" + finished.sum()
+                + ",\"moves\":" + moves.sum() + ",\"busy\":" + busy.sum() + ",\"queued\":" + workers.getQueue().size()
+                + ",\"moveMicros\":{\"p50\":" + moveTimes.getPercentile(50) / 1000
+                + ",\"p99\":" + moveTimes.getPercentile(99) / 1000 + ",\"max\":" + moveTimes.getMax() / 1000 + "}}";
+    }
+
+    /**
+     * A connection and its game. Only used on the selector thread.
+     */
+    private static class Session {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(MAX_LINE);
+        ByteBuffer output = ByteBuffer.allocate(64);
+        SelectionKey key;
+        Tournament.AgentSpec spec; // The agent, with its budget capped
+        int agentSide;
+        long state = BitBoard.EMPTY;
+        boolean playing = false;
+        boolean thinking = false; // A worker is computing the move of the agent
+        GameLog.Recorder recorder; // Records the game when the server has a log
+        long answered; // System.nanoTime() of the last answer, when the client started thinking
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
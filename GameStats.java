@@ -0,0 +1,120 @@
+/**
+ * Results of a run of games: win counts, game lengths and throughput.
+ */
+public class GameStats {
+
+    private int games = 0;
+    private int xCounter = 0; // Counter for X wins
+    private int oCounter = 0; // Counter for O wins
+    private int tCounter = 0; // Counter for games ending after 100 moves
+    private int dCounter = 0; // Counter for games ending with a full board, only in the variants
+    private long xWonTurn = 0;
+    private long oWonTurn = 0;
+    private long elapsedNanos = 0;
+
+    /**
+     * Records a game won by X.
+     *
+     * @param turns the number of turns the game took.
+     */
+    public void xWon(int turns) {
+        games++;
+        xCounter++;
+        xWonTurn += turns;
+    }
+
+    /**
+     * Records a game won by O.
+     *
+     * @param turns the number of turns the game took.
+     */
+    public void oWon(int turns) {
+        games++;
+        oCounter++;
+        oWonTurn += turns;
+    }
+
+    /**
+     * Records a game stopped after 100 turns.
+     */
+    public void stopped() {
+        games++;
+        tCounter++;
+    }
+
+    /**
+     * Records a game that ended in a draw because the board was full, which only happens in the variants
+     * whose window keeps enough pieces to fill it (see {@link Variant}).
+     */
+    public void drawn() {
+        games++;
+        dCounter++;
+    }
+
+    /**
+     * Adds time spent playing the recorded games.
+     *
+     * @param nanos the time in nanoseconds.
+     */
+    public void addTime(long nanos) {
+        elapsedNanos += nanos;
+    }
+
+    /**
+     * Adds the results of another run to this one.
+     *
+     * @param other the other run.
+     */
+    public void merge(GameStats other) {
+        games += other.games;
+        xCounter += other.xCounter;
+        oCounter += other.oCounter;
+        tCounter += other.tCounter;
+        dCounter += other.dCounter;
+        xWonTurn += other.xWonTurn;
+        oWonTurn += other.oWonTurn;
+        elapsedNanos += other.elapsedNanos;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public int getXWins() {
+        return xCounter;
+    }
+
+    public int getOWins() {
+        return oCounter;
+    }
+
+    public int getStopped() {
+        return tCounter;
+    }
+
+    public int getDraws() {
+        return dCounter;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the number of games played per second of time spent in games.
+     */
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return a summary of the results, in the format of the game menu.
+     */
+    public String report() {
+        return "X won " + xCounter + " times with avg turn of " + ((double)xWonTurn)/xCounter + " per game\n" +
+                "O won " + oCounter + " times with avg turn of " + ((double)oWonTurn)/oCounter + " per game\n" +
+                "the game stop after 100 turns " + tCounter + " times\n" +
+                (dCounter > 0 ? "the board was full " + dCounter + " times\n" : "") +
+                "total avg turns per game = " +((double)(xWonTurn+oWonTurn))/(xCounter+oCounter);
+    }
+}
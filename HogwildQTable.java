@@ -0,0 +1,94 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Q-values shared by several threads.
+ * <p>
+ * Keys are claimed with a compare-and-set on a free slot of a fixed-size open-addressing table, and
+ * values are stored as the bits of a {@code double} and updated with a compare-and-set loop, so an
+ * update is never lost and no thread ever blocks. The table does not grow: it has to be created with
+ * room for every state the training will visit.
+ */
+public class HogwildQTable implements QValues {
+
+    private static final long FREE = -1;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray values;
+    private final int mask;
+
+    /**
+     * Constructs an empty table.
+     *
+     * @param capacity the maximum number of entries, rounded up to a power of two.
+     */
+    public HogwildQTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1);
+        keys = new AtomicLongArray(size);
+        values = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            keys.set(i, FREE);
+        mask = size - 1;
+    }
+
+    @Override
+    public double get(long key, double defaultValue) {
+        for (int i = QTable.hash(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long k = keys.get(i);
+            if (k == key)
+                return Double.longBitsToDouble(values.get(i));
+            if (k == FREE)
+                return defaultValue;
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public void put(long key, double value) {
+        values.set(slot(key), Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public double learn(long key, double target, double rate) {
+        int i = slot(key);
+        while (true) {
+            long bits = values.get(i);
+            double current = Double.longBitsToDouble(bits);
+            double updated = current + rate * (target - current);
+            if (values.compareAndSet(i, bits, Double.doubleToRawLongBits(updated)))
+                return updated;
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i <= mask; i++) {
+            if (keys.get(i) != FREE)
+                size++;
+        }
+        return size;
+    }
+
+    @Override
+    public void forEach(QTable.Visitor visitor) {
+        for (int i = 0; i <= mask; i++) {
+            long k = keys.get(i);
+            if (k != FREE)
+                visitor.visit(k, Double.longBitsToDouble(values.get(i)));
+        }
+    }
+
+    /**
+     * Finds the slot of a key, claiming a free one if the key is new. New slots start at 0.0.
+     */
+    private int slot(long key) {
+        for (int i = QTable.hash(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long k = keys.get(i);
+            if (k == key)
+                return i;
+            if (k == FREE && (keys.compareAndSet(i, FREE, key) || keys.get(i) == key))
+                return i;
+        }
+        throw new IllegalStateException("the Q-table is full, create it with a larger capacity");
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations with a fixed relative precision, in the manner of HdrHistogram.
+ * <p>
+ * Values are counted in buckets that cover every power of two with {@link #SUB_BUCKETS} equal steps,
+ * so a percentile is within about 3% of the true value whatever its magnitude, and the histogram has
+ * a fixed size whatever range it covers. Recording is a few atomic updates (the bucket, the count, the sum
+ * and, for a new maximum, the max), and threads can record concurrently without locking.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of buckets per power of two.
+     */
+    public static final int SUB_BUCKETS = 32;
+    private static final int SUB_BITS = 5;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray totals = new AtomicLongArray(3); // count, sum, max
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, usually in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts.incrementAndGet(index(value));
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, value);
+        long max;
+        while ((max = totals.get(2)) < value && !totals.compareAndSet(2, max, value)) {
+            // another thread raised the max, retry against its value
+        }
+    }
+
+    /**
+     * Adds all the values of another histogram to this one.
+     *
+     * @param other the other histogram.
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0)
+                counts.addAndGet(i, count);
+        }
+        totals.addAndGet(0, other.getCount());
+        totals.addAndGet(1, other.totals.get(1));
+        long max;
+        while ((max = totals.get(2)) < other.getMax() && !totals.compareAndSet(2, max, other.getMax())) {
+            // another thread raised the max, retry against its value
+        }
+    }
+
+    /**
+     * Forgets all the recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        for (int i = 0; i < 3; i++)
+            totals.set(i, 0);
+    }
+
+    public long getCount() {
+        return totals.get(0);
+    }
+
+    public long getMax() {
+        return totals.get(2);
+    }
+
+    /**
+     * @return the average of the recorded values, or 0 if there are none.
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totals.get(1) / count;
+    }
+
+    /**
+     * Finds the value below which a share of the recorded values fall.
+     *
+     * @param percentile the share in percent, for example 99.
+     * @return the largest value of the bucket that holds the percentile, at most the max, or 0 if there
+     *         are no values.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highest(i), getMax());
+        }
+        return getMax();
+    }
+
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highest(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
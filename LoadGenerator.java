@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Puts a {@link GameServer} under load and measures it: many connections play games against an agent
+ * with random moves, as fast as the server answers.
+ * <pre>
+ * java LoadGenerator [--host 127.0.0.1] [--port 7777] [--connections 1000] [--seconds 10]
+ *                    [--agent minmax:3] [--side X] [--embedded workers]
+ * </pre>
+ * All the connections are driven by one thread with a {@link Selector}, so thousands of them cost no more
+ * threads than one. With --embedded the server runs in the same process on a free port, with the given
+ * number of workers.
+ * <p>
+ * At the end the generator reports the finished games per second, the moves per second and the latency
+ * of the moves of the agent, measured from sending the move of the client to receiving the answer. A
+ * connection that gets an unexpected answer or fails is closed, and the errors are counted by kind.
+ */
+public class LoadGenerator {
+
+    /**
+     * Entry point for the load generator.
+     *
+     * @param args the load options.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "127.0.0.1", agent = "minmax:3";
+        int port = 7777, connections = 1000, embedded = 0;
+        long seconds = 10;
+        char side = 'X';
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(args[++i]);
+                    break;
+                case "--agent":
+                    agent = args[++i];
+                    break;
+                case "--side":
+                    side = args[++i].charAt(0);
+                    break;
+                case "--embedded":
+                    embedded = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.out.println("unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        GameServer server = null;
+        Thread serverThread = null;
+        if (embedded > 0) {
+            server = new GameServer(0, embedded, 1024);
+            port = server.getPort();
+            serverThread = new Thread(server::run, "game-server");
+            serverThread.start();
+        }
+        LoadGenerator generator = new LoadGenerator(agent, side);
+        generator.run(new InetSocketAddress(host, port), connections, seconds * 1000);
+        System.out.println(generator.report());
+        if (server != null) {
+            System.out.println("server " + server.stats());
+            server.close();
+            serverThread.join();
+        }
+    }
+
+    private final String newGame;
+    private final int side; // The side the connections play
+    private final SplittableRandom random = new SplittableRandom();
+    private final LatencyHistogram moveTimes = new LatencyHistogram();
+    private long games = 0;
+    private long moves = 0;
+    private long busy = 0;
+    private final Map<String, Long> errors = new TreeMap<>(); // Count of every kind of error
+    private long elapsed = 0;
+
+    /**
+     * Constructs a load generator.
+     *
+     * @param agent the agent to play against, as in {@link Tournament}.
+     * @param side the side the connections play, 'X' or 'O'.
+     */
+    public LoadGenerator(String agent, char side) {
+        this.newGame = "NEW " + agent + " " + side;
+        this.side = side == 'X' ? BitBoard.X : BitBoard.O;
+    }
+
+    /**
+     * Opens the connections and plays games until the time is up. The games that are still running then
+     * are finished before the connections are closed.
+     *
+     * @param address the address of the server.
+     * @param connections the number of connections.
+     * @param millis the time to start new games for.
+     */
+    public void run(InetSocketAddress address, int connections, long millis) throws IOException {
+        long start = System.nanoTime();
+        long end = start + millis * 1_000_000;
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Client client = new Client(channel);
+                channel.register(selector, SelectionKey.OP_CONNECT, client);
+                channel.connect(address);
+            }
+            while (!selector.keys().isEmpty()) {
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Client client = (Client) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            client.channel.finishConnect();
+                            key.interestOps(SelectionKey.OP_READ);
+                            send(client, newGame);
+                        }
+                        else if (key.isReadable()) {
+                            read(client, end);
+                        }
+                    } catch (IOException e) {
+                        errors.merge("I/O " + e.getMessage(), 1L, Long::sum);
+                        client.channel.close();
+                    }
+                }
+            }
+        }
+        elapsed = System.nanoTime() - start;
+    }
+
+    private void read(Client client, long end) throws IOException {
+        ByteBuffer input = client.input;
+        if (client.channel.read(input) < 0)
+            throw new IOException("closed by the server");
+        input.flip();
+        int start = input.position();
+        for (int i = start; i < input.limit(); i++) {
+            if (input.get(i) == '\n') {
+                String line = new String(input.array(), start, i - start, StandardCharsets.US_ASCII);
+                start = i + 1;
+                handle(client, line, end);
+                if (!client.channel.isOpen())
+                    return;
+            }
+        }
+        input.position(start);
+        input.compact();
+    }
+
+    private void handle(Client client, String line, long end) throws IOException {
+        if (line.equals("OK")) {
+            client.state = BitBoard.EMPTY;
+            if (side == BitBoard.X)
+                play(client);
+        }
+        else if (line.startsWith("MOVE ")) {
+            moveTimes.record(System.nanoTime() - client.sent);
+            moves++;
+            client.state = BitBoard.apply(client.state, Integer.parseInt(line.substring(5)));
+            if (BitBoard.winner(client.state) == BitBoard.NO_WINNER && BitBoard.turn(client.state) < Game.MAX_TURNS)
+                play(client);
+        }
+        else if (line.startsWith("END ")) {
+            games++;
+            if (System.nanoTime() < end)
+                send(client, newGame);
+            else
+                client.channel.close();
+        }
+        else if (line.equals("BUSY")) {
+            busy++;
+            send(client, client.last);
+        }
+        else {
+            errors.merge(line, 1L, Long::sum);
+            client.channel.close();
+        }
+    }
+
+    /**
+     * Plays a random move for the client.
+     */
+    private void play(Client client) throws IOException {
+        int empty = BitBoard.emptyCells(client.state);
+        for (int skip = random.nextInt(Integer.bitCount(empty)); skip > 0; skip--)
+            empty &= empty - 1;
+        int cell = Integer.numberOfTrailingZeros(empty);
+        client.state = BitBoard.apply(client.state, cell);
+        send(client, "PLAY " + cell);
+    }
+
+    private void send(Client client, String line) throws IOException {
+        client.last = line;
+        client.sent = System.nanoTime();
+        ByteBuffer output = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        // a command is a few bytes and there is one in flight per connection, so the socket always takes it
+        while (output.hasRemaining())
+            client.channel.write(output);
+    }
+
+    /**
+     * @return the results of the last run.
+     */
+    public String report() {
+        double seconds = elapsed / 1e9;
+        String counts = String.format(Locale.ROOT, "%d games, %.1f games/second, %d moves, %.1f moves/second%n"
+                        + "move latency p50 %dus p99 %dus max %dus%n%d busy answers, %d errors",
+                games, games / seconds, moves, moves / seconds, moveTimes.getPercentile(50) / 1000,
+                moveTimes.getPercentile(99) / 1000, moveTimes.getMax() / 1000, busy,
+                errors.values().stream().mapToLong(Long::longValue).sum());
+        StringBuilder report = new StringBuilder(counts);
+        errors.forEach((kind, count) -> report.append(String.format(Locale.ROOT, "%n%8d %s", count, kind)));
+        return report.toString();
+    }
+
+    /**
+     * A connection and the state of its game.
+     */
+    private static class Client {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(256);
+        long state = BitBoard.EMPTY;
+        long sent; // System.nanoTime() of the last command
+        String last; // The last command, sent again after a BUSY answer
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
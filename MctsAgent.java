@@ -0,0 +1,383 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The MctsAgent class represents an AI player that uses Monte Carlo Tree Search (UCT) to choose its moves.
+ * <p>
+ * Every playout walks down the tree by the UCB1 formula, adds the children of the leaf it reaches, and
+ * finishes the game from there with quick random moves that take a winning move whenever there is one.
+ * The result is added to every node on the way. Unlike the depth limited {@link MinMaxAgent}, which scores
+ * every position it can't see the end of as 0, the playouts give every position a score, however long the
+ * game goes on. After the time budget the move that was searched the most is played.
+ * <p>
+ * The nodes live in a pool of fixed capacity, kept in arrays, so the search doesn't allocate; when the pool
+ * is full the tree stops growing and playouts start from its leaves. With a pool the playouts run on all its
+ * threads at once without locks: a node is counted as visited on the way down and only gets its result on
+ * the way back up, which makes the other threads see it as a loss in the meantime and spreads them over the
+ * tree (virtual loss), and a leaf is expanded by the one thread that claims it with a compare-and-set.
+ * <p>
+ * Between moves of the same game, the subtree of the position after the opponent's answer is kept, so the
+ * playouts of the previous move are not lost.
+ */
+public class MctsAgent extends Agent {
+
+    private static final double EXPLORATION = Math.sqrt(2); // Weight of the exploration term of UCB1
+    private static final int MAX_DEPTH = 256; // Deepest node a playout walks down to
+    private static final int NO_NODE = -1;
+
+    private long timeBudget = 100; // Milliseconds per move
+    private int playoutLimit = 0; // Playouts per move, 0 plays until the time budget runs out
+    private ForkJoinPool pool = null; // Runs playouts on all the threads of the pool when set
+    private Tree tree;
+    private Tree spare; // Receives the reused subtree, then swaps with the tree
+    private int chosen = NO_NODE; // Node of the last move played, the parent of the next root
+    private final List<Worker> workers = new ArrayList<>();
+    private final SplittableRandom seeds = new SplittableRandom();
+
+    /**
+     * Constructs a MctsAgent with a pool of 2^18 nodes.
+     */
+    public MctsAgent() {
+        this(1 << 18);
+    }
+
+    /**
+     * Constructs a MctsAgent.
+     *
+     * @param capacity the number of nodes the tree can hold.
+     */
+    public MctsAgent(int capacity) {
+        tree = new Tree(capacity);
+        spare = new Tree(capacity);
+    }
+
+    /**
+     * Determines the best move with a Monte Carlo Tree Search.
+     *
+     * @param board the current state of the game board.
+     * @param turn the current turn number.
+     * @return an array of two integers representing the row and column of the best move.
+     */
+    @Override
+    public int[] getPlayMove(int[][] board, int turn) {
+        return BitBoard.toMove(getPlayCell(BitBoard.fromBoard(board, turn)));
+    }
+
+    /**
+     * Determines the best move with a Monte Carlo Tree Search.
+     *
+     * @param state the current state of the game.
+     * @return the cell index of the best move.
+     */
+    @Override
+    public int getPlayCell(long state) {
+        long deadline = System.nanoTime() + timeBudget * 1_000_000;
+        moveRoot(state);
+        Tree tree = this.tree;
+        if (expand(tree, 0) == NO_NODE && tree.children.get(0) < 0)
+            return Integer.numberOfTrailingZeros(BitBoard.emptyCells(state));
+
+        int threads = pool == null ? 1 : pool.getParallelism();
+        while (workers.size() < threads)
+            workers.add(new Worker(seeds.split()));
+        int limit = playoutLimit == 0 ? Integer.MAX_VALUE : (playoutLimit + threads - 1) / threads;
+        if (pool == null) {
+            workers.get(0).search(tree, deadline, limit);
+        }
+        else {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Worker worker = workers.get(i);
+                tasks.add(pool.submit(() -> worker.search(tree, deadline, limit)));
+            }
+            for (ForkJoinTask<?> task : tasks)
+                task.join();
+        }
+
+        // the most searched move, ties go to the better score and then to the board order
+        int first = tree.children.get(0);
+        int best = first;
+        for (int child = first + 1; child < first + tree.counts[0]; child++) {
+            int visits = tree.visits.get(child), bestVisits = tree.visits.get(best);
+            if (visits > bestVisits || visits == bestVisits && tree.scores.get(child) > tree.scores.get(best))
+                best = child;
+        }
+        chosen = best;
+        return BitBoard.pieceAt(tree.states[best], 1);
+    }
+
+    /**
+     * Makes the state the root of the tree. If it is the answer of the opponent to the last move, its
+     * subtree is moved to the start of the spare pool, which becomes the tree; otherwise the tree restarts.
+     */
+    private void moveRoot(long state) {
+        int root = NO_NODE;
+        int first = chosen == NO_NODE ? NO_NODE : tree.children.get(chosen);
+        for (int child = first; first >= 0 && child < first + tree.counts[chosen]; child++) {
+            if (tree.states[child] == state)
+                root = child;
+        }
+        chosen = NO_NODE;
+        if (root == NO_NODE) {
+            tree.reset(state);
+            return;
+        }
+        spare.copySubtree(tree, root);
+        Tree old = tree;
+        tree = spare;
+        spare = old;
+    }
+
+    /**
+     * Adds the children of a node, unless another thread is already adding them, the game is over
+     * in the node or the pool has no room left.
+     *
+     * @return the first child, or {@link #NO_NODE} if the node was not expanded by this call.
+     */
+    private static int expand(Tree tree, int node) {
+        long state = tree.states[node];
+        if (BitBoard.winner(state) != BitBoard.NO_WINNER || BitBoard.turn(state) >= Game.MAX_TURNS)
+            return NO_NODE;
+        int empty = BitBoard.emptyCells(state);
+        int count = Integer.bitCount(empty);
+        if (tree.size.get() + count > tree.capacity
+                || !tree.children.compareAndSet(node, Tree.UNEXPANDED, Tree.EXPANDING))
+            return NO_NODE;
+        int first = tree.size.getAndAdd(count);
+        if (first + count > tree.capacity) {
+            // another thread took the last nodes in the meantime
+            tree.children.set(node, Tree.UNEXPANDED);
+            return NO_NODE;
+        }
+        for (int child = first; empty != 0; empty &= empty - 1, child++)
+            tree.init(child, BitBoard.apply(state, Integer.numberOfTrailingZeros(empty)));
+        tree.counts[node] = (byte) count;
+        tree.children.set(node, first); // publishes the children to the other threads
+        return first;
+    }
+
+    /**
+     * Finishes a game with random moves, except that a move that wins is always played.
+     *
+     * @param state a state that is not over.
+     * @param random the random number generator of the calling thread.
+     * @return the winner, {@link BitBoard#X} or {@link BitBoard#O}, or {@link BitBoard#NO_WINNER} if the
+     *         game reaches {@link Game#MAX_TURNS} turns.
+     */
+    static int rollout(long state, SplittableRandom random) {
+        while (BitBoard.turn(state) < Game.MAX_TURNS) {
+            int side = BitBoard.sideToMove(state);
+            // the oldest piece of the mover disappears with the move
+            int own = BitBoard.mask(state, side) & ~(1 << BitBoard.oldest(state));
+            int empty = BitBoard.emptyCells(state);
+            for (int moves = empty; moves != 0; moves &= moves - 1) {
+                if (BitBoard.hasLine(own | moves & -moves))
+                    return side;
+            }
+            // removing a piece never completes a line of the opponent, so a move that doesn't win can't lose
+            for (int skip = random.nextInt(Integer.bitCount(empty)); skip > 0; skip--)
+                empty &= empty - 1;
+            state = BitBoard.apply(state, Integer.numberOfTrailingZeros(empty));
+        }
+        return BitBoard.NO_WINNER;
+    }
+
+    /**
+     * Sets the time budget per move.
+     *
+     * @param millis the budget in milliseconds.
+     */
+    public void changeTimeBudget(long millis) {
+        if (millis < 0)
+            return;
+        timeBudget = millis;
+    }
+
+    /**
+     * Stops the search of a move after a number of playouts, even if there is time left.
+     * Together with a large time budget, this makes the search do the same work on any machine.
+     *
+     * @param playouts the playouts per move, split between the threads, or 0 for no limit.
+     */
+    public void changePlayouts(int playouts) {
+        if (playouts < 0)
+            return;
+        playoutLimit = playouts;
+    }
+
+    /**
+     * Makes the playouts run on all the threads of a pool.
+     *
+     * @param pool the pool to search on, or null to search on the calling thread.
+     */
+    public void changePool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return the number of playouts of the current root, including the ones of the earlier moves whose
+     *         subtree was kept.
+     */
+    public int getPlayouts() {
+        return tree.visits.get(0);
+    }
+
+    /**
+     * @return the number of nodes in the tree.
+     */
+    public int getTreeSize() {
+        return Math.min(tree.size.get(), tree.capacity);
+    }
+
+    /**
+     * Pool of nodes. Node 0 is the root, and the children of a node are stored next to each other.
+     * Every node counts its visits and the points scored in them by the player who moved into it:
+     * 2 for a win, 1 for a game stopped after {@link Game#MAX_TURNS} turns and 0 for a loss.
+     */
+    private static class Tree {
+        static final int UNEXPANDED = -1;
+        static final int EXPANDING = -2;
+
+        final int capacity;
+        final long[] states;
+        final byte[] counts; // Number of children
+        final AtomicIntegerArray children; // First child, UNEXPANDED or EXPANDING
+        final AtomicIntegerArray visits;
+        final AtomicIntegerArray scores;
+        final AtomicInteger size = new AtomicInteger();
+        final int[] order; // Old index of every copied node, see copySubtree
+
+        Tree(int capacity) {
+            this.capacity = capacity;
+            states = new long[capacity];
+            counts = new byte[capacity];
+            children = new AtomicIntegerArray(capacity);
+            visits = new AtomicIntegerArray(capacity);
+            scores = new AtomicIntegerArray(capacity);
+            order = new int[capacity];
+        }
+
+        void init(int node, long state) {
+            states[node] = state;
+            counts[node] = 0;
+            visits.set(node, 0);
+            scores.set(node, 0);
+            children.set(node, UNEXPANDED);
+        }
+
+        /**
+         * Empties the tree and makes the state its root.
+         */
+        void reset(long state) {
+            init(0, state);
+            size.set(1);
+        }
+
+        /**
+         * Replaces this tree with a subtree of another tree, copied breadth first so that the
+         * children of every node stay next to each other.
+         */
+        void copySubtree(Tree from, int root) {
+            order[0] = root;
+            copyNode(from, root, 0);
+            int size = 1;
+            for (int node = 0; node < size; node++) {
+                int old = order[node];
+                int first = from.children.get(old);
+                if (first < 0)
+                    continue;
+                children.set(node, size);
+                for (int child = first; child < first + from.counts[old]; child++) {
+                    order[size] = child;
+                    copyNode(from, child, size++);
+                }
+            }
+            this.size.set(size);
+        }
+
+        private void copyNode(Tree from, int old, int node) {
+            states[node] = from.states[old];
+            counts[node] = from.counts[old];
+            visits.set(node, from.visits.get(old));
+            scores.set(node, from.scores.get(old));
+            children.set(node, UNEXPANDED);
+        }
+    }
+
+    /**
+     * Playout state of one thread: its random number generator and the path of the current playout.
+     */
+    private static class Worker {
+        final SplittableRandom random;
+        final int[] path = new int[MAX_DEPTH + 1];
+
+        Worker(SplittableRandom random) {
+            this.random = random;
+        }
+
+        /**
+         * Runs playouts until the deadline or the playout limit.
+         */
+        void search(Tree tree, long deadline, int limit) {
+            for (int playouts = 0; playouts < limit && System.nanoTime() < deadline; playouts++)
+                playout(tree);
+        }
+
+        void playout(Tree tree) {
+            // selection, counting every node as visited on the way down
+            int node = 0, depth = 0;
+            tree.visits.incrementAndGet(node);
+            path[depth++] = node;
+            int first;
+            while ((first = tree.children.get(node)) >= 0 && depth <= MAX_DEPTH) {
+                node = select(tree, node, first);
+                tree.visits.incrementAndGet(node);
+                path[depth++] = node;
+            }
+
+            // expansion of a leaf that was visited before, then simulation
+            if (tree.visits.get(node) > 1 && depth <= MAX_DEPTH && (first = expand(tree, node)) != NO_NODE) {
+                node = first + random.nextInt(tree.counts[node]);
+                tree.visits.incrementAndGet(node);
+                path[depth++] = node;
+            }
+            long state = tree.states[node];
+            int winner = BitBoard.winner(state);
+            if (winner == BitBoard.NO_WINNER)
+                winner = rollout(state, random);
+
+            // backpropagation
+            for (int i = 0; i < depth; i++) {
+                int mover = 1 - BitBoard.sideToMove(tree.states[path[i]]);
+                int points = winner == mover ? 2 : winner == BitBoard.NO_WINNER ? 1 : 0;
+                if (points != 0)
+                    tree.scores.addAndGet(path[i], points);
+            }
+        }
+
+        /**
+         * Picks the child with the highest UCB1 value, or the first one that was never visited.
+         */
+        static int select(Tree tree, int node, int first) {
+            double logVisits = Math.log(tree.visits.get(node));
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < first + tree.counts[node]; child++) {
+                int visits = tree.visits.get(child);
+                if (visits == 0)
+                    return child;
+                double value = tree.scores.get(child) / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+}
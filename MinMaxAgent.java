@@ -1,5 +1,7 @@
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * The MinMaxAgent class represents an AI player for the game that uses the Minimax algorithm
@@ -17,9 +19,25 @@ public class MinMaxAgent extends Agent{
         this.player = player;
     }
 
-    private final int EMPTY = -1;
     private final char player;
-    private static int limit = 7;
+    private int limit = 7;
+    private boolean alphaBeta = true;
+    private long timeBudget = 0; // Milliseconds per move, 0 searches to the fixed limit
+    private ForkJoinPool pool = null; // Searches the root moves in parallel when set
+    private final Search search = new Search();
+    private SearchMetrics metrics = SearchMetrics.NONE;
+    private int depthReached = 0; // Depth of the deepest completed search of the last move
+
+    private static final int INFINITY = 1000; // Larger than any score
+    private static final int MAX_PLY = 64;
+    private static final int MAX_DEPTH = MAX_PLY - 2; // Deepest iteration of a time bounded search
+    private static final TimeUp TIME_UP = new TimeUp();
+
+    /**
+     * Search results shared by all the agents, across moves and games.
+     * A result only depends on the normalized state and the remaining depth, so it stays valid forever.
+     */
+    private static final TranspositionTable table = new TranspositionTable(18);
 
     /**
      * Determines the best move for the current player using the Minimax algorithm.
@@ -29,10 +47,22 @@ public class MinMaxAgent extends Agent{
      * @return an array of two integers representing the row and column of the best move.
      */
     public int[] getPlayMove(int[][] board, int turn){
-        if(player == 'X')
-            return getPlayMoveForX(board, turn);
-        else
-            return getPlayMoveForO(board, turn);
+        return BitBoard.toMove(getPlayCell(BitBoard.fromBoard(board, turn)));
+    }
+
+    /**
+     * Determines the best move for the current player using the Minimax algorithm.
+     * The whole search runs on the state, without converting it to a board.
+     *
+     * @param state the current state of the game.
+     * @return the cell index of the best move.
+     */
+    @Override
+    public int getPlayCell(long state){
+        long start = System.nanoTime();
+        int cell = bestCell(state, player == 'X');
+        metrics.move(System.nanoTime() - start, depthReached);
+        return cell;
     }
 
     /**
@@ -43,23 +73,7 @@ public class MinMaxAgent extends Agent{
      * @return an array of two integers representing the row and column of the best move.
      */
     public int[] getPlayMoveForO(int[][] realBoard, int turn){
-        int bestScore = Integer.MAX_VALUE;
-        int[] bestMove = {-1, -1};
-        int[][] board = copy(realBoard);
-
-        for (int[] move : getAvailableMoves(board)) {
-            // בצע את המהלך
-            board[move[0]][move[1]] = turn;
-            int score = minimax(copy(board), true, turn + 1, limit);
-            board[move[0]][move[1]] = EMPTY;
-
-            if (score < bestScore) {
-                bestScore = score;
-                bestMove = move;
-            }
-        }
-
-        return bestMove;
+        return BitBoard.toMove(bestCell(BitBoard.fromBoard(realBoard, turn), false));
     }
 
     /**
@@ -70,136 +84,441 @@ public class MinMaxAgent extends Agent{
      * @return an array of two integers representing the row and column of the best move.
      */
     public int[] getPlayMoveForX(int[][] realBoard, int turn){
-        int bestScore = Integer.MIN_VALUE;
-        int[] bestMove = {-1, -1};
-        int[][] board = copy(realBoard);
+        return BitBoard.toMove(bestCell(BitBoard.fromBoard(realBoard, turn), true));
+    }
+
+    /**
+     * Searches the state with the configured search: iterative deepening with a time budget,
+     * otherwise alpha-beta or plain Minimax to the fixed limit.
+     *
+     * @param state the current state of the game.
+     * @param isXTurn true if the agent plays 'X', false otherwise.
+     * @return the cell index of the best move.
+     */
+    private int bestCell(long state, boolean isXTurn){
+        if(timeBudget > 0)
+            return iterativeDeepening(state, isXTurn);
+        depthReached = limit;
+        if(alphaBeta)
+            return alphaBetaRoot(state, isXTurn, limit);
+        int bestScore = isXTurn ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int bestCell = BitBoard.NONE;
+        search.state = state;
 
-        for (int[] move : getAvailableMoves(board)) {
+        for (int moves = BitBoard.emptyCells(state); moves != 0; moves &= moves - 1) {
+            int cell = Integer.numberOfTrailingZeros(moves);
             // בצע את המהלך
-            board[move[0]][move[1]] = turn;
-            int score = minimax(copy(board), false, turn + 1, limit);
-            board[move[0]][move[1]] = EMPTY;
+            int removed = search.make(cell);
+            int score = minimax(!isXTurn, limit);
+            search.unmake(removed);
 
-            if (score > bestScore) {
+            if (isXTurn ? score > bestScore : score < bestScore) {
                 bestScore = score;
-                bestMove = move;
+                bestCell = cell;
             }
         }
 
-        return bestMove;
+        return bestCell;
     }
 
 
     /**
      * Minimax algorithm for evaluating the best move.
+     * The node is the current state of {@link #search}, which is the same when the method returns.
      *
-     * @param board the current state of the game board.
      * @param isXTurn true if it's player 'X's turn, false otherwise.
-     * @param turn the current turn number.
      * @param limit the depth limit for the algorithm.
      * @return the score of the evaluated move.
      */
-    private int minimax(int[][] board, boolean isXTurn, int turn, int limit){
+    private int minimax(boolean isXTurn, int limit){
         if(limit == 0)
             return 0;
-        if(turn >= 6)
-            deleteOldest(board, turn - 1);
-        Integer winner = checkWinner(board);
-        if(winner != null){
-            if(winner % 2 == 0)
-                return limit;
-            else
-                return limit * (-1);
+        // counted past the depth limit, as in alphaBeta
+        search.nodes++;
+        metrics.node(this.limit - limit + 1);
+        long state = search.state;
+        int winner = BitBoard.winner(state);
+        if(winner != BitBoard.NO_WINNER)
+            return winner == BitBoard.X ? limit : -limit;
+
+        int symmetry = Symmetry.canonical(state);
+        long key = stateKey(state, isXTurn, symmetry);
+        long entry = table.probe(key, limit);
+        metrics.probe(entry != TranspositionTable.MISS);
+        if(entry != TranspositionTable.MISS && TranspositionTable.depth(entry) == limit
+                && TranspositionTable.bound(entry) == TranspositionTable.EXACT) {
+            metrics.tableCutoff();
+            return TranspositionTable.score(entry);
         }
+
+        int empty = BitBoard.emptyCells(state);
+        metrics.expanded(Integer.bitCount(empty));
+        int bestCell = BitBoard.NONE;
+        int score, bestScore;
         if(isXTurn) {
-            int score, bestScore = Integer.MIN_VALUE;
-            for (int[] move : getAvailableMoves(board)) {
-                board[move[0]][move[1]] = turn;
-                score = minimax(copy(board), !isXTurn, turn + 1, limit - 1);
-                board[move[0]][move[1]] = EMPTY;
-                if (score > bestScore)
+            bestScore = Integer.MIN_VALUE;
+            for (int moves = empty; moves != 0; moves &= moves - 1) {
+                int cell = Integer.numberOfTrailingZeros(moves);
+                int removed = search.make(cell);
+                score = minimax(!isXTurn, limit - 1);
+                search.unmake(removed);
+                if (score > bestScore) {
                     bestScore = score;
+                    bestCell = cell;
+                }
             }
-            return bestScore;
         }
         else{
-            int score, bestScore = Integer.MAX_VALUE;
-            for (int[] move : getAvailableMoves(board)) {
-                board[move[0]][move[1]] = turn;
-                score = minimax(copy(board), !isXTurn, turn + 1, limit - 1);
-                board[move[0]][move[1]] = EMPTY;
-                if (score < bestScore)
+            bestScore = Integer.MAX_VALUE;
+            for (int moves = empty; moves != 0; moves &= moves - 1) {
+                int cell = Integer.numberOfTrailingZeros(moves);
+                int removed = search.make(cell);
+                score = minimax(!isXTurn, limit - 1);
+                search.unmake(removed);
+                if (score < bestScore) {
                     bestScore = score;
+                    bestCell = cell;
+                }
             }
-            return bestScore;
         }
+
+        if(bestCell != BitBoard.NONE)
+            table.store(key, limit, bestScore, TranspositionTable.EXACT, Symmetry.toCanonical(bestCell, symmetry));
+        return bestScore;
     }
 
+    /**
+     * Determines the best move with iterative deepening: alpha-beta searches of depth 1, 2, 3... are
+     * run until the time budget runs out, and the move of the deepest completed search is returned.
+     * Each iteration starts with the best line of the previous one, which the transposition table keeps.
+     * The first iteration always completes.
+     *
+     * @param state the current state of the game.
+     * @param isXTurn true if the agent plays 'X', false otherwise.
+     * @return the cell index of the best move.
+     */
+    private int iterativeDeepening(long state, boolean isXTurn){
+        long deadline = System.nanoTime() + timeBudget * 1_000_000;
+        int bestCell = alphaBetaRoot(state, isXTurn, 1);
+        depthReached = 1;
+        search.deadline = deadline;
+        try {
+            for (int depth = 2; depth <= MAX_DEPTH && System.nanoTime() < deadline; depth++) {
+                bestCell = alphaBetaRoot(state, isXTurn, depth);
+                depthReached = depth;
+            }
+        } catch (TimeUp e) {
+            // the unfinished iteration is dropped
+        } finally {
+            search.deadline = 0;
+        }
+        return bestCell;
+    }
 
     /**
-     * Retrieves all available moves on the board.
+     * Determines the best move with an alpha-beta search.
+     * Root moves are searched in a heuristic order, but a move only replaces the current best one if it
+     * scores strictly better or scores the same and comes first in the board order, so the chosen move is
+     * always the one {@link #minimax(boolean, int)} would choose.
      *
-     * @param board the current state of the game board.
-     * @return a list of available moves, where each move is an array of two integers (row and column).
-     */
-    private List<int[]> getAvailableMoves(int[][] board) {
-        List<int[]> moves = new ArrayList<>();
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[i][j] == EMPTY) {
-                    moves.add(new int[]{i, j});
+     * @param state the current state of the game.
+     * @param isXTurn true if the agent plays 'X', false otherwise.
+     * @param limit the depth limit for the algorithm.
+     * @return the cell index of the best move.
+     */
+    private int alphaBetaRoot(long state, boolean isXTurn, int limit){
+        int symmetry = Symmetry.canonical(state);
+        long key = stateKey(state, isXTurn, symmetry);
+        long entry = table.probe(key, limit + 1);
+        metrics.probe(entry != TranspositionTable.MISS);
+        int ttMove = entry != TranspositionTable.MISS
+                ? Symmetry.fromCanonical(TranspositionTable.move(entry), symmetry) : BitBoard.NONE;
+        search.newSearch();
+        search.state = state; // a search that ran out of time unwound without its unmakes
+
+        int[] moves = search.moves[0];
+        int count = orderMoves(state, ttMove, 0, moves, search);
+        metrics.expanded(count);
+        int bestScore = isXTurn ? -INFINITY : INFINITY;
+        int bestCell = BitBoard.NONE;
+        int first = pool == null ? count : 1;
+
+        for (int i = 0; i < first; i++) {
+            int cell = moves[i];
+            // a move that comes before the best one in the board order also wins ties
+            int bound = cell < bestCell ? (isXTurn ? bestScore - 1 : bestScore + 1) : bestScore;
+            int score = searchRootMove(isXTurn, limit, cell, bound, search);
+            if (isXTurn ? score > bound : score < bound) {
+                bestScore = score;
+                bestCell = cell;
+            }
+        }
+
+        if (first < count) {
+            // the other root moves are searched in parallel against the score of the first one. A move that
+            // fails that bound can't be chosen anyway, and every other score is exact, so picking the best
+            // of them in the same way as above gives the sequential result.
+            List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+            for (int i = first; i < count; i++) {
+                int cell = moves[i];
+                int bound = cell < bestCell ? (isXTurn ? bestScore - 1 : bestScore + 1) : bestScore;
+                Search taskSearch = new Search();
+                taskSearch.newSearch(); // the killers of a new search are 0, a real cell, until cleared
+                taskSearch.state = state;
+                taskSearch.deadline = search.deadline;
+                tasks.add(pool.submit(() -> {
+                    try {
+                        return searchRootMove(isXTurn, limit, cell, bound, taskSearch);
+                    } catch (TimeUp e) {
+                        return null;
+                    }
+                }));
+            }
+            int firstScore = bestScore, firstCell = bestCell;
+            boolean timeUp = false;
+            for (int i = first; i < count; i++) {
+                Integer score = tasks.get(i - first).join();
+                int cell = moves[i];
+                int bound = cell < firstCell ? (isXTurn ? firstScore - 1 : firstScore + 1) : firstScore;
+                if (score == null)
+                    timeUp = true;
+                else if ((isXTurn ? score > bound : score < bound)
+                        && (score == bestScore ? cell < bestCell : isXTurn == score > bestScore)) {
+                    bestScore = score;
+                    bestCell = cell;
                 }
             }
+            if (timeUp)
+                throw TIME_UP;
         }
-        return moves;
+
+        table.store(key, limit + 1, bestScore, TranspositionTable.EXACT, Symmetry.toCanonical(bestCell, symmetry));
+        return bestCell;
     }
 
+    /**
+     * Searches one root move with a window that only lets through scores that beat {@code bound}.
+     *
+     * @param isXTurn true if the agent plays 'X', false otherwise.
+     * @param limit the depth limit for the algorithm.
+     * @param cell the move to search.
+     * @param bound the score the move has to beat.
+     * @param search the state and move ordering state of the calling thread, at the root.
+     * @return the score of the move, exact if it beats the bound.
+     */
+    private int searchRootMove(boolean isXTurn, int limit, int cell, int bound, Search search){
+        int removed = search.make(cell);
+        int score = isXTurn
+                ? alphaBeta(false, limit, bound, INFINITY, 1, search)
+                : alphaBeta(true, limit, -INFINITY, bound, 1, search);
+        search.unmake(removed);
+        return score;
+    }
 
     /**
-     * Checks for a winner on the board.
+     * Minimax algorithm with alpha-beta pruning. Returns the same score as
+     * {@link #minimax(boolean, int)} whenever that score lies inside the window,
+     * and otherwise a bound on the side of the window it falls on.
+     * The node is the current state of {@code search}, which is the same when the method returns.
      *
-     * @param board the current state of the game board.
-     * @return the turn number of the winner, or null if there is no winner.
+     * @param isXTurn true if it's player 'X's turn, false otherwise.
+     * @param limit the depth limit for the algorithm.
+     * @param alpha the score 'X' is already assured of.
+     * @param beta the score 'O' is already assured of.
+     * @param ply the distance from the root of the search.
+     * @param search the state and move ordering state of the calling thread.
+     * @return the score of the evaluated move.
      */
-    private Integer checkWinner(int[][] board) {
-        // Check rows, columns, and diagonals
-        for (int i = 0; i < 3; i++) {
-            if (isWinningLine(board[i][0], board[i][1], board[i][2])) return board[i][0];
-            if (isWinningLine(board[0][i], board[1][i], board[2][i])) return board[0][i];
+    private int alphaBeta(boolean isXTurn, int limit, int alpha, int beta, int ply, Search search){
+        if(limit == 0)
+            return 0;
+        search.checkTime();
+        metrics.node(ply);
+        long state = search.state;
+        int winner = BitBoard.winner(state);
+        if(winner != BitBoard.NO_WINNER)
+            return winner == BitBoard.X ? limit : -limit;
+
+        int symmetry = Symmetry.canonical(state);
+        long key = stateKey(state, isXTurn, symmetry);
+        long entry = table.probe(key, limit);
+        metrics.probe(entry != TranspositionTable.MISS);
+        int ttMove = BitBoard.NONE;
+        if(entry != TranspositionTable.MISS) {
+            ttMove = Symmetry.fromCanonical(TranspositionTable.move(entry), symmetry);
+            if(TranspositionTable.depth(entry) == limit) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if(bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha) {
+                    metrics.tableCutoff();
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = search.moves[ply];
+        int count = orderMoves(state, ttMove, ply, moves, search);
+        metrics.expanded(count);
+        int originalAlpha = alpha, originalBeta = beta;
+        int bestScore = isXTurn ? -INFINITY : INFINITY;
+        int bestCell = BitBoard.NONE;
+
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            int removed = search.make(cell);
+            int score = alphaBeta(!isXTurn, limit - 1, alpha, beta, ply + 1, search);
+            search.unmake(removed);
+
+            if(isXTurn ? score > bestScore : score < bestScore) {
+                bestScore = score;
+                bestCell = cell;
+                if(isXTurn && score > alpha)
+                    alpha = score;
+                else if(!isXTurn && score < beta)
+                    beta = score;
+                if(alpha >= beta) {
+                    metrics.betaCutoff();
+                    search.cutoff(BitBoard.sideToMove(state), cell, ply, limit);
+                    break;
+                }
+            }
         }
-        if (isWinningLine(board[0][0], board[1][1], board[2][2])) return board[0][0];
-        if (isWinningLine(board[0][2], board[1][1], board[2][0])) return board[0][2];
 
-        return null;
+        int bound;
+        if(bestScore <= originalAlpha)
+            bound = TranspositionTable.UPPER;
+        else if(bestScore >= originalBeta)
+            bound = TranspositionTable.LOWER;
+        else
+            bound = TranspositionTable.EXACT;
+        table.store(key, limit, bestScore, bound, Symmetry.toCanonical(bestCell, symmetry));
+        return bestScore;
     }
 
     /**
-     * Deletes the oldest move from the board when the turn count exceeds 6.
+     * Fills {@code moves} with the available moves, best candidates first: the transposition table move,
+     * moves that complete a line, moves that block a line of the opponent, killer moves and then the rest
+     * by their history score. Moves with the same priority keep the board order.
      *
-     * @param board the current state of the game board.
-     * @param turn the turn number to delete.
+     * @param state the current state of the game, after the oldest piece was removed.
+     * @param ttMove the best move stored in the transposition table, or {@link BitBoard#NONE}.
+     * @param ply the distance from the root of the search.
+     * @param moves the array to fill.
+     * @param search the move ordering state of the calling thread.
+     * @return the number of moves.
      */
-    private static void deleteOldest(int[][] board, int turn){
-        for(int i = 0; i < 3; i++){
-            for(int j = 0; j < 3; j++){
-                if(board[i][j] == turn - 6 && board[i][j] != -1){
-                    board[i][j] = -1;
-                    break;
-                }
+    private int orderMoves(long state, int ttMove, int ply, int[] moves, Search search){
+        int side = BitBoard.sideToMove(state);
+        // the piece that disappears with this move belongs to the mover, the opponent loses its
+        // second oldest piece when it answers
+        int own = BitBoard.mask(state, side) & ~(1 << BitBoard.oldest(state));
+        int opponent = BitBoard.mask(state, 1 - side) & ~(1 << BitBoard.pieceAt(state, BitBoard.WINDOW - 1));
+        int[] scores = search.scores[ply];
+        int[] killers = search.killers[ply];
+        int count = 0;
+
+        for (int empty = BitBoard.emptyCells(state); empty != 0; empty &= empty - 1) {
+            int cell = Integer.numberOfTrailingZeros(empty);
+            int score;
+            if(cell == ttMove)
+                score = 1 << 30;
+            else if(BitBoard.hasLine(own | 1 << cell))
+                score = 1 << 29;
+            else if(BitBoard.hasLine(opponent | 1 << cell))
+                score = 1 << 28;
+            else if(cell == killers[0])
+                score = 1 << 27;
+            else if(cell == killers[1])
+                score = 1 << 26;
+            else
+                score = search.history[side][cell];
+
+            int i = count++;
+            while (i > 0 && scores[i - 1] < score) {
+                scores[i] = scores[i - 1];
+                moves[i] = moves[i - 1];
+                i--;
             }
+            scores[i] = score;
+            moves[i] = cell;
         }
+        return count;
+    }
+
+    /**
+     * Builds the transposition table key of a search node: the pieces with their ages
+     * relative to the current turn, the parity of the turn and the side to move.
+     * Symmetric nodes share a key, the one of their canonical representative, so the moves stored
+     * in the table are cells of the canonical board.
+     *
+     * @param state the current state of the game.
+     * @param isXTurn true if it's player 'X's turn, false otherwise.
+     * @param symmetry the symmetry that makes the state canonical, see {@link Symmetry#canonical(long)}.
+     * @return the normalized key.
+     */
+    private static long stateKey(long state, boolean isXTurn, int symmetry){
+        long key = BitBoard.key(Symmetry.transform(state, symmetry));
+        return isXTurn ? key | 1L << 25 : key;
+    }
+
+
+    /**
+     * Selects between the alpha-beta search and the plain Minimax search.
+     * Both choose the same move, alpha-beta just visits fewer positions.
+     *
+     * @param alphaBeta true to use alpha-beta pruning, false for plain Minimax.
+     */
+    public void changeAlphaBeta(boolean alphaBeta){
+        this.alphaBeta = alphaBeta;
+    }
+
+    /**
+     * Sets a time budget per move. With a budget the agent deepens its search until the time runs out
+     * instead of searching to the fixed limit.
+     *
+     * @param millis the budget in milliseconds, or 0 to search to the fixed limit.
+     */
+    public void changeTimeBudget(long millis){
+        if(millis < 0)
+            return;
+        timeBudget = millis;
+    }
+
+    /**
+     * Makes the alpha-beta search split the root moves between the threads of a pool.
+     * The first root move is searched alone to get a bound for the others, and ties are broken
+     * in the same way, so the chosen move is the same as with the sequential search.
+     *
+     * @param pool the pool to search on, or null to search on the calling thread.
+     */
+    public void changePool(ForkJoinPool pool){
+        this.pool = pool;
     }
 
     /**
-     * Checks if three cells form a winning line.
+     * Sends the events of the searches of this agent to a metrics collector, for example a {@link SearchStats}.
      *
-     * @param a the value of the first cell.
-     * @param b the value of the second cell.
-     * @param c the value of the third cell.
-     * @return true if the three cells form a winning line, false otherwise.
+     * @param metrics the collector, or {@link SearchMetrics#NONE} to stop collecting.
      */
-    private boolean isWinningLine(int a, int b, int c) {
-        return a != EMPTY && a % 2 == b % 2 && b % 2 == c % 2;
+    public void changeMetrics(SearchMetrics metrics){
+        this.metrics = metrics == null ? SearchMetrics.NONE : metrics;
+    }
+
+    /**
+     * @return the number of nodes this agent has searched on the calling thread, for benchmarks.
+     *         Nodes searched by the threads of a pool are not counted.
+     */
+    public long getNodes(){
+        return search.nodes;
+    }
+
+    /**
+     * Empties the transposition table shared by all the agents, so that the next searches start cold.
+     */
+    public static void clearTable(){
+        table.clear();
     }
 
     public void changeLimit(int l){
@@ -207,4 +526,81 @@ public class MinMaxAgent extends Agent{
             return;
         limit = l;
     }
+
+    /**
+     * State of a search on one thread: the position, which moves are made and unmade on, the killer
+     * moves per ply and the history score of every move.
+     */
+    private static class Search {
+        long state; // The position of the node being searched
+        final int[][] moves = new int[MAX_PLY][BitBoard.CELLS];
+        final int[][] scores = new int[MAX_PLY][BitBoard.CELLS];
+        final int[][] killers = new int[MAX_PLY][2];
+        final int[][] history = new int[2][BitBoard.CELLS];
+        long deadline; // System.nanoTime() to stop at, or 0
+        long nodes;
+
+        /**
+         * Prepares for a new search: killers are cleared and old history scores fade out.
+         */
+        void newSearch() {
+            for (int[] pair : killers) {
+                pair[0] = BitBoard.NONE;
+                pair[1] = BitBoard.NONE;
+            }
+            for (int[] side : history) {
+                for (int i = 0; i < side.length; i++)
+                    side[i] >>= 1;
+            }
+        }
+
+        /**
+         * Plays a move on the position, removing the oldest piece of the mover first.
+         *
+         * @return the removed cell, or {@link BitBoard#NONE}, for {@link #unmake(int)}.
+         */
+        int make(int cell) {
+            int removed = BitBoard.oldest(state);
+            state = BitBoard.apply(state, cell);
+            return removed;
+        }
+
+        /**
+         * Takes back the last move made on the position, putting back the piece it removed.
+         */
+        void unmake(int removed) {
+            state = BitBoard.undo(state, removed);
+        }
+
+        /**
+         * Aborts the search with {@link TimeUp} once the deadline has passed.
+         * The clock is only read every 1024 nodes.
+         */
+        void checkTime() {
+            if ((++nodes & 1023) == 0 && deadline != 0 && System.nanoTime() > deadline)
+                throw TIME_UP;
+        }
+
+        /**
+         * Records a move that caused a beta cutoff.
+         */
+        void cutoff(int side, int cell, int ply, int depth) {
+            if (killers[ply][0] != cell) {
+                killers[ply][1] = killers[ply][0];
+                killers[ply][0] = cell;
+            }
+            history[side][cell] += depth * depth;
+        }
+    }
+
+    /**
+     * Thrown to unwind a search whose time budget ran out.
+     */
+    private static class TimeUp extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TimeUp() {
+            super(null, null, false, false);
+        }
+    }
 }
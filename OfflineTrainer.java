@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Trains a Q-table from games recorded in {@link GameLog}s, without playing any.
+ * <pre>
+ * java OfflineTrainer [--player X] [--sweeps 1] [--threads 1] [--replay 65536 [--batch 32] [--prioritized]]
+ *                     [--fresh] [--out DBForX-offline.txt] log...
+ * </pre>
+ * The games are replayed move by move, and every move is learned the way {@link Game} teaches a
+ * {@link QLearningAgent} that plays in it: the state before the move, the move, the reward of the game
+ * and the state after it go to {@link QLearningAgent#updateQTable(long, int, int, long)}. One sweep of a
+ * single thread over the log of a learning run therefore gives the same table as the run itself. Further
+ * sweeps learn from the same games again, which carries the rewards at the end of the games further back.
+ * <p>
+ * With --threads the games are split into partitions, one per thread, by their position in the logs. Every
+ * thread learns its partition on a private copy of the table, and after every sweep the change of every state
+ * is averaged over the threads that changed it, as in the merge mode of {@link Trainer}. A state played in
+ * every partition is then moved as far as by one partition, not by all the games, so several threads need
+ * more sweeps than one to reach the same table. The logs are read as a stream by every thread, so their size
+ * is not limited by the memory.
+ * <p>
+ * Training starts from the DB of the player unless --fresh is given. The result is written to --out, as a
+ * text DB when the name ends with ".txt" and in the binary format otherwise (see {@link QTableFile}).
+ * To play with it, write it as "DBForX.bin" (or "DBForO.bin"), which is loaded before the text DB.
+ */
+public class OfflineTrainer {
+
+    /**
+     * Entry point for the offline trainer.
+     *
+     * @param args the training options and the log files.
+     */
+    public static void main(String[] args) {
+        char player = 'X';
+        int sweeps = 1, threads = 1, replay = 0, batch = 32;
+        boolean fresh = false, prioritized = false;
+        String out = null;
+        List<Path> logs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--player":
+                    player = Character.toUpperCase(args[++i].charAt(0));
+                    break;
+                case "--sweeps":
+                    sweeps = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--replay":
+                    replay = Integer.parseInt(args[++i]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                case "--prioritized":
+                    prioritized = true;
+                    break;
+                case "--fresh":
+                    fresh = true;
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        System.out.println("unknown option " + args[i]);
+                        return;
+                    }
+                    logs.add(Paths.get(args[i]));
+            }
+        }
+        if (player != 'X' && player != 'O') {
+            System.out.println("the player must be X or O");
+            return;
+        }
+        if (logs.isEmpty()) {
+            System.out.println("no game logs given");
+            return;
+        }
+        if (out == null)
+            out = QLearningAgent.dbPath(player) + "-offline.txt";
+
+        char learner = player;
+        int replayCapacity = replay, replayBatch = batch;
+        boolean replayPrioritized = prioritized;
+        Function<QValues, QLearningAgent> learners = table -> {
+            QLearningAgent agent = new QLearningAgent(learner, table);
+            if (replayCapacity > 0)
+                agent.changeReplay(new ReplayBuffer(replayCapacity, replayPrioritized), replayBatch);
+            return agent;
+        };
+
+        QTable table = fresh ? new QTable() : QLearningAgent.loadTable(player);
+        long begin = System.nanoTime();
+        long transitions;
+        try {
+            transitions = train(logs, table, learners, sweeps, threads);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        long wall = System.nanoTime() - begin;
+        System.out.printf("%s learned %d transitions in %d sweeps on %d threads, %.1f transitions/second,"
+                        + " %d states in the Q-table%n", player, transitions, sweeps, threads,
+                transitions * 1e9 / wall, table.size());
+
+        try {
+            Path output = Paths.get(out);
+            if (out.endsWith(".txt"))
+                QTableFile.writeText(table, output);
+            else
+                QTableFile.write(table, output);
+            System.out.println("wrote " + output);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Learns the games of the logs into a table.
+     *
+     * @param logs the game logs, read in order.
+     * @param table the table to start from, which holds the result at the end.
+     * @param learners creates the learning agents on top of a table.
+     * @param sweeps the number of times every game is learned.
+     * @param threads the number of partitions learned at the same time.
+     * @return the number of transitions learned, over all the sweeps.
+     */
+    public static long train(List<Path> logs, QTable table, Function<QValues, QLearningAgent> learners,
+                             int sweeps, int threads) throws IOException {
+        if (threads <= 1) {
+            QLearningAgent agent = learners.apply(table);
+            long transitions = 0;
+            for (int sweep = 0; sweep < sweeps; sweep++)
+                transitions += learn(logs, agent, 0, 1);
+            return transitions;
+        }
+
+        Trainer.Copy[] copies = new Trainer.Copy[threads];
+        QLearningAgent[] agents = new QLearningAgent[threads];
+        for (int i = 0; i < threads; i++) {
+            copies[i] = new Trainer.Copy(table);
+            agents[i] = learners.apply(copies[i]);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long transitions = 0;
+        try {
+            for (int sweep = 0; sweep < sweeps; sweep++) {
+                List<Future<Long>> workers = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    QLearningAgent agent = agents[i];
+                    int partition = i;
+                    workers.add(pool.submit(() -> learn(logs, agent, partition, threads)));
+                }
+                for (Future<Long> worker : workers)
+                    transitions += worker.get();
+                Trainer.merge(table, copies);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return transitions;
+    }
+
+    /**
+     * Learns one partition of the games of the logs: the games whose position in the logs is
+     * {@code partition} modulo {@code partitions}.
+     *
+     * @return the number of transitions learned.
+     */
+    private static long learn(List<Path> logs, QLearningAgent agent, int partition, int partitions)
+            throws IOException {
+        long[] counts = {0, 0}; // games seen, transitions learned
+        for (Path log : logs) {
+            GameLog.replay(log, (xAgent, oAgent, winner, turns, cells, nanos) -> {
+                if (counts[0]++ % partitions != partition)
+                    return;
+                long state = BitBoard.EMPTY;
+                for (int turn = 0; turn < turns; turn++) {
+                    long next = Game.updateBoard(state, cells[turn]);
+                    boolean gameOver = BitBoard.winner(next) != BitBoard.NO_WINNER;
+                    agent.updateQTable(state, cells[turn], Game.getReward(gameOver, turn), next);
+                    state = next;
+                }
+                counts[1] += turns;
+            });
+        }
+        return counts[1];
+    }
+}
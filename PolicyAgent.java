@@ -0,0 +1,71 @@
+import java.io.IOException;
+
+/**
+ * The PolicyAgent class plays the moves a {@link QLearningAgent} would play without exploring, from a
+ * policy compiled by {@link PolicyTable}. It answers every move with a single lookup, and never learns.
+ */
+public class PolicyAgent extends Agent {
+
+    private final byte[] policy;
+
+    private static final byte[][] sharedPolicies = new byte[2][]; // Loaded once per player and shared
+
+    /**
+     * Constructs a PolicyAgent for the specified player. The policy is loaded from
+     * {@link PolicyTable#path(char)}, or compiled from the Q-table of the player if the file can't be read,
+     * and shared by all the agents of the process that play the same player.
+     *
+     * @param player the character representing the player ('X' or 'O').
+     */
+    public PolicyAgent(char player) {
+        this(loadPolicy(player));
+    }
+
+    private static synchronized byte[] loadPolicy(char player) {
+        int side = player == 'X' ? BitBoard.X : BitBoard.O;
+        if (sharedPolicies[side] == null) {
+            try {
+                sharedPolicies[side] = PolicyTable.read(PolicyTable.path(player));
+            } catch (IOException e) {
+                sharedPolicies[side] = PolicyTable.compile(player, QLearningAgent.loadTable(player));
+            }
+        }
+        return sharedPolicies[side];
+    }
+
+    /**
+     * Constructs a PolicyAgent that plays an already compiled policy.
+     *
+     * @param policy the policy returned by {@link PolicyTable#compile(char, QValues)} or
+     *               {@link PolicyTable#read(String)}.
+     */
+    public PolicyAgent(byte[] policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Determines the move by looking up the current state.
+     *
+     * @param board the current state of the game board.
+     * @param turn the current turn number.
+     * @return an array of two integers representing the row and column of the move.
+     */
+    @Override
+    public int[] getPlayMove(int[][] board, int turn) {
+        return BitBoard.toMove(getPlayCell(BitBoard.fromBoard(board, turn)));
+    }
+
+    /**
+     * Determines the move by looking up the current state.
+     *
+     * @param state the current state of the game.
+     * @return the cell index of the move.
+     */
+    @Override
+    public int getPlayCell(long state) {
+        int cell = policy[StateIndex.index(state)];
+        if (cell == BitBoard.NONE)
+            cell = Integer.numberOfTrailingZeros(BitBoard.emptyCells(state));
+        return cell;
+    }
+}
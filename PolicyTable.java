@@ -0,0 +1,121 @@
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Compiles the greedy policy of a Q-table into a table with one byte per state.
+ * <p>
+ * While a {@link QLearningAgent} plays without exploring, its move only depends on the state: it is the
+ * move that leads to the state with the highest Q-value. The compiler finds every state reachable from
+ * the empty board, asks the agent for its move once, and stores the cell at the {@link StateIndex} of the
+ * state. A {@link PolicyAgent} then plays the same moves with one index computation and one array read.
+ * <p>
+ * The table is a snapshot: it has to be compiled again after the Q-table learned.
+ * <pre>
+ * java PolicyTable [X|O]
+ * </pre>
+ */
+public class PolicyTable {
+
+    private static final int MAGIC = 0x504F4C59; // "POLY"
+    private static final int VERSION = 1;
+
+    private PolicyTable() {
+    }
+
+    /**
+     * Compiles the Q-table of a player ("DBForX" or "DBForO") and writes the policy next to it.
+     *
+     * @param args the player, 'X' by default.
+     */
+    public static void main(String[] args) throws IOException {
+        char player = args.length > 0 ? Character.toUpperCase(args[0].charAt(0)) : 'X';
+        long start = System.nanoTime();
+        byte[] policy = compile(player, QLearningAgent.loadTable(player));
+        write(policy, path(player));
+
+        int moves = 0;
+        for (byte cell : policy)
+            if (cell != BitBoard.NONE)
+                moves++;
+        System.out.println("compiled " + moves + " states in " + (System.nanoTime() - start) / 1_000_000
+                + " ms to " + path(player));
+    }
+
+    /**
+     * Compiles the greedy policy of a Q-table.
+     *
+     * @param player the character representing the player ('X' or 'O').
+     * @param qTable the Q-table.
+     * @return the move of every state, indexed by {@link StateIndex#index(long)}, or {@link BitBoard#NONE}
+     *         for states that are unreachable or over.
+     */
+    public static byte[] compile(char player, QValues qTable) {
+        QLearningAgent agent = new QLearningAgent(player, qTable);
+        agent.changeLearning(false);
+        agent.changeRandom(0);
+
+        int count = StateIndex.COUNT;
+        byte[] policy = new byte[count];
+        Arrays.fill(policy, (byte) BitBoard.NONE);
+        boolean[] reached = new boolean[count];
+        long[] queue = new long[count];
+        int head = 0, tail = 0;
+        queue[tail++] = BitBoard.EMPTY;
+        reached[StateIndex.index(BitBoard.EMPTY)] = true;
+        while (head < tail) {
+            long state = queue[head++];
+            if (BitBoard.winner(state) != BitBoard.NO_WINNER)
+                continue;
+            policy[StateIndex.index(state)] = (byte) agent.getPlayCell(state);
+            for (int empty = BitBoard.emptyCells(state); empty != 0; empty &= empty - 1) {
+                long next = StateIndex.normalize(BitBoard.apply(state, Integer.numberOfTrailingZeros(empty)));
+                int index = StateIndex.index(next);
+                if (!reached[index]) {
+                    reached[index] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * @param player the character representing the player ('X' or 'O').
+     * @return the file name of the policy of the player, "PolicyForX.bin" or "PolicyForO.bin".
+     */
+    public static String path(char player) {
+        return player == 'X' ? "PolicyForX.bin" : "PolicyForO.bin";
+    }
+
+    /**
+     * Writes a compiled policy to a file.
+     *
+     * @param policy the compiled policy.
+     * @param filePath the file to write.
+     */
+    public static void write(byte[] policy, String filePath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(policy.length);
+            out.write(policy);
+        }
+    }
+
+    /**
+     * Reads a compiled policy from a file.
+     *
+     * @param filePath the file to read.
+     * @return the compiled policy.
+     * @throws IOException if the file can't be read or was not written by this version of the compiler.
+     */
+    public static byte[] read(String filePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != StateIndex.COUNT)
+                throw new IOException(filePath + " is not a compiled policy");
+            byte[] policy = new byte[StateIndex.COUNT];
+            in.readFully(policy);
+            return policy;
+        }
+    }
+}
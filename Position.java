@@ -0,0 +1,182 @@
+import java.util.Arrays;
+
+/**
+ * Mutable game state of a {@link Variant}, for boards of up to 64 cells.
+ * <p>
+ * The cells of each side are a {@code long} mask, and every move played is kept in order, which is
+ * all that is needed to play and take back moves: the piece that disappears with a move is the one played
+ * {@link Variant#getWindow()} turns earlier, so {@link #unmake()} can put it back without anything being
+ * recorded for it. Searches make and unmake moves on one position instead of copying it.
+ */
+public final class Position {
+
+    private final Variant variant;
+    private final long[] masks = new long[2];
+    private int[] played = new int[64]; // The cell played at every turn
+    private int turn = 0;
+
+    /**
+     * Constructs the empty board of a variant.
+     *
+     * @param variant the rules of the game.
+     */
+    public Position(Variant variant) {
+        this.variant = variant;
+    }
+
+    /**
+     * @return a position with the same moves, that can be changed independently.
+     */
+    public Position copy() {
+        Position copy = new Position(variant);
+        copy.masks[0] = masks[0];
+        copy.masks[1] = masks[1];
+        copy.played = played.clone();
+        copy.turn = turn;
+        return copy;
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    /**
+     * @return the current turn number.
+     */
+    public int turn() {
+        return turn;
+    }
+
+    /**
+     * @return {@link BitBoard#X} on even turns, {@link BitBoard#O} on odd turns.
+     */
+    public int sideToMove() {
+        return turn & 1;
+    }
+
+    /**
+     * @param side {@link BitBoard#X} or {@link BitBoard#O}.
+     * @return the cells taken by the side.
+     */
+    public long mask(int side) {
+        return masks[side];
+    }
+
+    /**
+     * @return the cells that are free. The oldest piece of the side to move still counts as taken.
+     */
+    public long emptyCells() {
+        return ~(masks[0] | masks[1]) & variant.getFull();
+    }
+
+    /**
+     * @return the cell of the piece that disappears with the next move, or {@link Variant#NONE}.
+     */
+    public int oldest() {
+        int window = variant.getWindow();
+        return window > 0 && turn >= window ? played[turn - window] : Variant.NONE;
+    }
+
+    /**
+     * @param age 1 for the piece placed last, 2 for the one before...
+     * @return the cell of the piece, or {@link Variant#NONE} if there is no such piece on the board.
+     */
+    public int pieceAt(int age) {
+        int window = variant.getWindow();
+        return age >= 1 && age <= turn && (window == 0 || age <= window) ? played[turn - age] : Variant.NONE;
+    }
+
+    /**
+     * Plays a move for the side to move: its oldest piece is removed, the new piece is placed
+     * and the turn advances.
+     *
+     * @param cell the cell to play, one of {@link #emptyCells()}.
+     */
+    public void make(int cell) {
+        int side = turn & 1;
+        int removed = oldest();
+        if (removed != Variant.NONE)
+            masks[side] &= ~(1L << removed);
+        masks[side] |= 1L << cell;
+        if (turn == played.length)
+            played = Arrays.copyOf(played, turn * 2);
+        played[turn++] = cell;
+    }
+
+    /**
+     * Takes back the last move, putting back the piece it removed.
+     */
+    public void unmake() {
+        int cell = played[--turn];
+        int side = turn & 1;
+        masks[side] &= ~(1L << cell);
+        int removed = oldest();
+        if (removed != Variant.NONE)
+            masks[side] |= 1L << removed;
+    }
+
+    /**
+     * Checks for a winner. Only the last move can have completed a line, since removing
+     * a piece never completes one.
+     *
+     * @return {@link BitBoard#X}, {@link BitBoard#O} or {@link BitBoard#NO_WINNER}.
+     */
+    public int winner() {
+        if (turn == 0)
+            return BitBoard.NO_WINNER;
+        int side = (turn - 1) & 1;
+        return variant.hasLineThrough(masks[side], played[turn - 1]) ? side : BitBoard.NO_WINNER;
+    }
+
+    /**
+     * Builds a key of the position for the search and learning tables: the pieces in the order they were
+     * played and the side to move. Positions reached at different turns share a key if they have the
+     * same future. The key is exact when it fits in 63 bits, as it does for 5x5 boards with a window of up to
+     * 12 pieces, and a hash of the same data otherwise. It is never negative.
+     *
+     * @return the key.
+     */
+    public long key() {
+        int window = variant.getWindow();
+        int cells = variant.getCells();
+        long side = turn & 1;
+        if (window == 0) {
+            if (2 * cells + 1 <= 63)
+                return masks[0] | masks[1] << cells | side << 2 * cells;
+            return mix(mix(mix(side) + masks[0]) + masks[1]) & Long.MAX_VALUE;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(cells); // A cell plus one, 0 for no piece
+        int pieces = Math.min(turn, window);
+        if (window * bits + 1 <= 63) {
+            long key = 0;
+            for (int age = 1; age <= pieces; age++)
+                key = key << bits | (played[turn - age] + 1);
+            return key << 1 | side;
+        }
+        long hash = mix(side);
+        for (int age = 1; age <= pieces; age++)
+            hash = mix(hash + played[turn - age] + 1);
+        return hash & Long.MAX_VALUE;
+    }
+
+    private static long mix(long value) {
+        value *= 0x9E3779B97F4A7C15L;
+        return value ^ value >>> 32;
+    }
+
+    /**
+     * @return the board drawn with 'X', 'O' and '.', one row per line.
+     */
+    @Override
+    public String toString() {
+        StringBuilder board = new StringBuilder();
+        for (int row = 0; row < variant.getSize(); row++) {
+            for (int col = 0; col < variant.getSize(); col++) {
+                long bit = 1L << variant.cell(row, col);
+                board.append((masks[0] & bit) != 0 ? 'X' : (masks[1] & bit) != 0 ? 'O' : '.');
+            }
+            board.append('\n');
+        }
+        return board.toString();
+    }
+}
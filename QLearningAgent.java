@@ -1,5 +1,7 @@
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class implements a Q-learning agent that learns how to play a game (e.g., Tic-Tac-Toe)
@@ -8,39 +10,84 @@ import java.util.*;
 public class QLearningAgent extends Agent{
 
     private char playerType;
-    private static final int SIZE = 3;
     private static final double LEARNING_RATE = 0.1;
     private static final double DISCOUNT_FACTOR = 0.9;
-    private static double EXPLORATION_RATE = 0.0; // random play p
+    private double explorationRate = 0.0; // random play p
+    private boolean learning = true;
 
-    private Map<String, Double> qTable = new HashMap<>();
+    private final QValues qTable;
+    private final Random random = new Random();
+    private QTableJournal journal = null;
+    private ReplayBuffer replay = null;
+    private int replayBatch = 0;
+    private int sinceReplay = 0;
+
+    /**
+     * Binary tables mapped by this process, shared by all the agents that load them.
+     */
+    private static final Map<String, QTableFile.Mapped> mapped = new ConcurrentHashMap<>();
 
 
     /**
      * Constructor that initializes the QLearningAgent with a given player type.
-     * It loads the Q-table from a file based on the player's type.
+     * It loads the Q-table from a file based on the player's type, see {@link #loadTable(char)}.
      *
      * @param playerType The type of the player ('X' or 'O')
      */
     public QLearningAgent(char playerType){
+        this(playerType, loadTable(playerType));
+    }
+
+    /**
+     * Constructor that initializes the QLearningAgent with a Q-table of its own choosing,
+     * for example a table shared with agents training on other threads (see {@link Trainer}).
+     *
+     * @param playerType The type of the player ('X' or 'O')
+     * @param qTable The Q-table to play with and update
+     */
+    public QLearningAgent(char playerType, QValues qTable){
         this.playerType = playerType;
-        String filePath;
-        if(playerType == 'X')
-            filePath = "DBForX.txt";
-        else
-            filePath = "DBForO.txt";
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            String[] arr;
-            while ((line = reader.readLine()) != null) {
-                //System.out.println(line);
-                arr = line.split(":");
-                qTable.put(arr[0], Double.valueOf(arr[1]));
+        this.qTable = qTable;
+    }
+
+    /**
+     * Loads the Q-table of a player: the binary file ("DBForX.bin" or "DBForO.bin") is mapped
+     * if it exists, otherwise the text file is read.
+     * Updates left in the journal by an earlier run after the binary file was written are then replayed.
+     * The symmetric states of a text table, or of a binary table written before its keys were flagged
+     * canonical, are folded together (see {@link Symmetry#fold(QTable)}); binary tables flagged canonical
+     * are used as they are.
+     *
+     * @param playerType The type of the player ('X' or 'O')
+     * @return The Q-table, or an empty table if it can't be read
+     */
+    public static QTable loadTable(char playerType){
+        String filePath = dbPath(playerType);
+        QTable table = new QTable();
+        try {
+            Path binary = Paths.get(filePath + ".bin");
+            int firstSegment = 0;
+            boolean canonical = false;
+            if (Files.exists(binary)) {
+                QTableFile.Mapped snapshot = mapped.computeIfAbsent(filePath, path -> {
+                    try {
+                        return QTableFile.map(binary);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                table = new QTable(snapshot);
+                firstSegment = snapshot.getFirstSegment();
+                canonical = snapshot.isCanonical();
             }
-        } catch (IOException e) {
+            else
+                table = QTableFile.readText(Paths.get(filePath + ".txt"));
+            if (QTableJournal.recover(filePath, table, firstSegment) > 0 || !canonical)
+                table = Symmetry.fold(table);
+        } catch (IOException | UncheckedIOException e) {
             e.printStackTrace();
         }
+        return table;
     }
 
 
@@ -53,169 +100,283 @@ public class QLearningAgent extends Agent{
      * @return The chosen move as an array of two integers (row, column)
      */
     public int[] getPlayMove(int[][] board, int turn){
+        return BitBoard.toMove(getPlayCell(BitBoard.fromBoard(board, turn)));
+    }
 
-        String state = boardToString(board, turn);
-        List<int[]> availableMoves = getAvailableMoves(board);
+    /**
+     * Determines the next move for the agent based on the current state.
+     * The agent either selects a random move or uses the Q-table to choose the best move.
+     *
+     * @param state The current state of the game
+     * @return The cell index of the chosen move
+     */
+    @Override
+    public int getPlayCell(long state){
+        int turn = BitBoard.turn(state);
+        int availableMoves = BitBoard.emptyCells(state);
 
         // בחירה אקראית או על בסיס הטבלה
-        if (Math.random() < EXPLORATION_RATE) {
-            return availableMoves.get(new Random().nextInt(availableMoves.size()));
+        if (random.nextDouble() < explorationRate) {
+            for (int skip = random.nextInt(Integer.bitCount(availableMoves)); skip > 0; skip--)
+                availableMoves &= availableMoves - 1;
+            return Integer.numberOfTrailingZeros(availableMoves);
         }
 
         // מציאת המהלך עם הערך הגבוה ביותר בטבלת Q
         double bestValue = Double.NEGATIVE_INFINITY;
-        int[] bestMove = null;
+        int bestMove = BitBoard.NONE;
 
-        for (int[] move : availableMoves) {
-            String nextState = simulateState(board, move, turn);
-            double value = qTable.getOrDefault(nextState, 0.0);
+        for (int moves = availableMoves; moves != 0; moves &= moves - 1) {
+            int move = Integer.numberOfTrailingZeros(moves);
+            long nextState = canonicalKey(BitBoard.apply(state, move), turn);
+            double value = qTable.get(nextState, 0.0);
             if (value > bestValue) {
                 bestValue = value;
                 bestMove = move;
             }
         }
 
-        return bestMove != null ? bestMove : availableMoves.get(0);
+        return bestMove != BitBoard.NONE ? bestMove : Integer.numberOfTrailingZeros(availableMoves);
 
     }
 
     /**
-     * Simulates the next state of the board after a move and returns its string representation.
+     * Updates the Q-table based on the current state, the chosen move, and the resulting reward.
+     * The Q-value is updated using the Q-learning formula.
      *
      * @param board The current game board
-     * @param move The move to simulate
+     * @param move The move taken
      * @param turn The current turn number
-     * @return The string representation of the simulated next state
+     * @param reward The reward received after the move
+     * @param nextBoard The game board after the move
      */
-    private String simulateState(int[][] board, int[] move, int turn) {
-        int[][] newBoard = simulateMove(board, move, turn);
-        return boardToString(newBoard, turn);
+    public void updateQTable(int[][] board, int[] move, int turn, int reward, int[][] nextBoard) {
+        updateQTable(BitBoard.fromBoard(board, turn), BitBoard.cell(move[0], move[1]), reward,
+                BitBoard.fromBoard(nextBoard, turn + 1));
     }
 
     /**
-     * Simulates a move on the board and returns the updated board.
-     * The move is applied to a copy of the current board.
+     * Updates the Q-table for a move played on a {@link BitBoard} state.
      *
-     * @param board The current game board
-     * @param move The move to simulate
-     * @param turn The current turn number
-     * @return The updated game board after the move
-     * */
-    private int[][] simulateMove(int[][] board, int[] move, int turn) {
-        int[][] newBoard = copy(board);
-        newBoard[move[0]][move[1]] = turn;
-
-        int oldestTurn = turn - 6;
-        int[] oldestCell = null;
-
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (turn >= 6 && newBoard[i][j] == oldestTurn) {
-                    newBoard[i][j] = -1;
-                }
+     * @param state The state before the move
+     * @param cell The cell index of the move
+     * @param reward The reward received after the move
+     * @param nextState The state after the move
+     */
+    public void updateQTable(long state, int cell, int reward, long nextState) {
+        if (!learning)
+            return;
+        long currentState = canonicalKey(state, BitBoard.turn(state));
+        long nextKey = canonicalKey(nextState, BitBoard.turn(nextState));
+
+        learn(currentState, reward, nextKey);
+        if (replay != null) {
+            replay.add(currentState, reward, nextKey);
+            if (++sinceReplay >= replayBatch) {
+                sinceReplay = 0;
+                replay();
             }
         }
-
-        return newBoard;
     }
 
-
     /**
-     * Returns a list of available moves on the current game board.
-     *
-     * @param board The current game board
-     * @return A list of available moves (each move is represented as an array of two integers)
-     */
-    private List<int[]> getAvailableMoves(int[][] board) {
-        List<int[]> moves = new ArrayList<>();
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (board[i][j] == -1) {
-                    moves.add(new int[]{i, j});
-                }
-            }
+     * Applies a batch of updates sampled from the replay buffer, and records their TD errors
+     * when the buffer is prioritized.
+     */
+    private void replay(){
+        for (int i = 0; i < replayBatch; i++) {
+            int index = replay.sample(random);
+            replay.updatePriority(index, learn(replay.key(index), replay.reward(index), replay.nextKey(index)));
         }
-        return moves;
     }
 
-
     /**
-     * Updates the Q-table based on the current state, the chosen move, and the resulting reward.
-     * The Q-value is updated using the Q-learning formula.
+     * Applies the Q-learning formula to one transition and journals the new value.
      *
-     * @param board The current game board
-     * @param move The move taken
-     * @param turn The current turn number
-     * @param reward The reward received after the move
-     * @param nextBoard The game board after the move
+     * @return the difference between the value before the update and its target
      */
-    public void updateQTable(int[][] board, int[] move, int turn, int reward, int[][] nextBoard) {
-        String currentState = boardToString(board, turn);
-        String nextState = boardToString(nextBoard, turn+1);
-
-        double currentQ = qTable.getOrDefault(currentState, 0.0);
-        double nextMaxQ = qTable.getOrDefault(nextState, 0.0);
+    private double learn(long currentState, int reward, long nextKey){
+        double nextMaxQ = qTable.get(nextKey, 0.0);
 
         // עדכון הטבלה באמצעות נוסחת Q-Learning
-        double updatedQ = currentQ + LEARNING_RATE * (reward + DISCOUNT_FACTOR * nextMaxQ - currentQ);
-        qTable.put(currentState, updatedQ);
-        //qTable.put(nextState, Double.valueOf(reward));
+        double target = reward + DISCOUNT_FACTOR * nextMaxQ;
+        double updatedQ = qTable.learn(currentState, target, LEARNING_RATE);
+        if (journal != null) {
+            try {
+                journal.append(currentState, updatedQ);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return (updatedQ - target) / (1 - LEARNING_RATE);
     }
 
 
     /**
-     * Converts the game board to a string representation.
-     * The string representation is used to store and compare states in the Q-table.
+     * Encodes a state as a Q-table key without allocating.
+     * Every cell holds the turn its piece was played at minus {@code turn - 6} (or minus 0 before turn 6),
+     * or -1 if it is empty, which is the same normalization as the keys of the DB files.
+     * The key stores each cell value plus one in 3 bits, cell 0 in the lowest bits.
      *
-     * @param board The current game board
-     * @param turn The current turn number
-     * @return The string representation of the game board
+     * @param state The game state
+     * @param turn The turn the values are relative to
+     * @return The key of the state
      */
-    private String boardToString(int[][] board, int turn){
-        int[][] copyBoard = copy(board);
-        String strBoard = "";
+    static long stateKey(long state, int turn){
         int minValue = 0;
         if(turn >= 6) {
             minValue = turn - 6;
         }
 
-        for(int i = 0; i < SIZE; i++){
-            for (int j = 0; j < SIZE; j++){
-                if(copyBoard[i][j] != -1)
-                    copyBoard[i][j] -= minValue;
-                strBoard += copyBoard[i][j];
-                if(i != 2 || j != 2)
-                    strBoard += ",";
+        int stateTurn = BitBoard.turn(state);
+        long key = 0;
+        for (int age = 1; age <= BitBoard.WINDOW; age++) {
+            int cell = BitBoard.pieceAt(state, age);
+            if (cell == BitBoard.NONE)
+                break;
+            key |= (long) (stateTurn - age - minValue + 1) << (3 * cell);
+        }
+        return key;
+    }
+
+    /**
+     * Encodes a state as the key of its canonical representative, so that the 8 symmetric states
+     * share one entry of the Q-table (see {@link Symmetry}).
+     *
+     * @param state The game state
+     * @param turn The turn the values are relative to
+     * @return The canonical key of the state
+     */
+    static long canonicalKey(long state, int turn){
+        return Symmetry.canonicalQKey(stateKey(state, turn));
+    }
+
+    /**
+     * Converts a key to the text representation used in the DB files: the 9 cell values separated by commas.
+     *
+     * @param key The key of the state
+     * @return The string representation of the state
+     */
+    static String keyToString(long key){
+        StringBuilder strBoard = new StringBuilder();
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            if (cell != 0)
+                strBoard.append(',');
+            strBoard.append((int) (key >>> (3 * cell) & 7) - 1);
+        }
+        return strBoard.toString();
+    }
+
+    /**
+     * Parses the text representation of a state used in the DB files.
+     *
+     * @param strBoard The string representation of the state
+     * @return The key of the state
+     */
+    static long parseKey(String strBoard){
+        long key = 0;
+        int cell = 0, i = 0;
+        while (i < strBoard.length()) {
+            int value;
+            if (strBoard.charAt(i) == '-') {
+                value = -(strBoard.charAt(i + 1) - '0');
+                i += 2;
             }
+            else {
+                value = strBoard.charAt(i) - '0';
+                i++;
+            }
+            key |= (long) (value + 1) << (3 * cell++);
+            i++; // skip the comma
         }
+        return key;
+    }
 
-        return strBoard;
+    /**
+     * Starts journaling every update of the Q-table, so that a long training run can crash without losing
+     * its progress. The table is also checkpointed periodically in the background (see {@link QTableJournal}).
+     * Only tables owned by this agent can be journaled, shared tables are saved by their {@link Trainer}.
+     */
+    public void startJournal(){
+        if (journal != null)
+            return;
+        if (!(qTable instanceof QTable)) {
+            System.out.println("only a QTable can be journaled");
+            return;
+        }
+        String filePath = dbPath(playerType);
+        try {
+            journal = new QTableJournal(filePath, (QTable) qTable, () -> mapped.remove(filePath));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
      * Writes the Q-table to a file so that it can be loaded later.
-     * The file is saved based on the player type (either "DBForX.txt" or "DBForO.txt").
+     * The file is saved in the binary format based on the player type (either "DBForX.bin" or "DBForO.bin");
+     * use {@link QTableFile} to convert it to text. When journaling, this is a checkpoint of the journal.
      */
     public void writeData(){
-        String filePath;
-        if(playerType == 'X')
-            filePath = "DBForX.txt";
-        else
-            filePath = "DBForO.txt";
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            for(Map.Entry<String, Double> entry : qTable.entrySet()) {
-                writer.write(entry.getKey() + ":" + entry.getValue().toString());
-                writer.newLine();
+        String filePath = dbPath(playerType);
+        try {
+            if (journal != null) {
+                journal.compact(true);
+            }
+            else {
+                QTableFile.write(qTable, Paths.get(filePath + ".bin"));
+                mapped.remove(filePath);
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * @param playerType The type of the player ('X' or 'O')
+     * @return the DB file name without extension, based on the player type.
+     */
+    static String dbPath(char playerType){
+        if(playerType == 'X')
+            return "DBForX";
+        else
+            return "DBForO";
+    }
+
+    /**
+     * @return the Q-table the agent plays with and updates.
+     */
+    public QValues getQTable(){
+        return qTable;
+    }
+
+    /**
+     * Turns learning on or off. An agent that doesn't learn never changes its Q-table,
+     * which makes it safe to evaluate a table over many games.
+     *
+     * @param learning true to update the Q-table after every move.
+     */
+    public void changeLearning(boolean learning){
+        this.learning = learning;
+    }
+
+    /**
+     * Turns experience replay on or off. With replay, every update is also recorded in the buffer,
+     * and every {@code batchSize} updates a batch of {@code batchSize} recorded transitions is sampled
+     * and applied again.
+     *
+     * @param buffer the buffer to record into, or null to turn replay off.
+     * @param batchSize the number of transitions in a batch.
+     */
+    public void changeReplay(ReplayBuffer buffer, int batchSize){
+        replay = buffer;
+        replayBatch = Math.max(batchSize, 1);
+        sinceReplay = 0;
+    }
+
     public void changeRandom(double p){
         if(p > 1 || p < 0)
             return;
-        EXPLORATION_RATE = p;
+        explorationRate = p;
     }
 }
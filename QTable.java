@@ -0,0 +1,201 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} state keys to {@code double} Q-values.
+ * Keys and values are kept in primitive arrays, so lookups and updates never allocate.
+ * Keys must not be negative.
+ * <p>
+ * A table can sit on top of a read-only {@link QTableFile.Mapped} base: lookups fall through to
+ * the base and updates are kept in the table, so the mapped file is never copied into the heap.
+ */
+public class QTable implements QValues {
+
+    private static final long FREE = -1;
+
+    private long[] keys;
+    private double[] values;
+    private int size;
+    private int mask;
+    private final QTableFile.Mapped base;
+    private int overridden; // Number of entries that replace an entry of the base
+
+    /**
+     * Visits the entries of a table.
+     */
+    public interface Visitor {
+        void visit(long key, double value);
+    }
+
+    /**
+     * Constructs an empty table.
+     */
+    public QTable() {
+        this(1024);
+    }
+
+    /**
+     * Constructs an empty table that can hold {@code expected} entries before it grows.
+     *
+     * @param expected the expected number of entries.
+     */
+    public QTable(int expected) {
+        this(expected, null);
+    }
+
+    /**
+     * Constructs a table on top of a mapped table.
+     *
+     * @param base the read-only entries.
+     */
+    public QTable(QTableFile.Mapped base) {
+        this(1024, base);
+    }
+
+    private QTable(int expected, QTableFile.Mapped base) {
+        this.base = base;
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) * 2;
+        allocate(capacity);
+    }
+
+    /**
+     * @param key the state key.
+     * @param defaultValue the value to return if the key is not in the table.
+     * @return the Q-value of the state, or {@code defaultValue}.
+     */
+    @Override
+    public double get(long key, double defaultValue) {
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return values[i];
+            if (k == FREE)
+                return base != null ? base.get(key, defaultValue) : defaultValue;
+        }
+    }
+
+    /**
+     * @param key the state key.
+     * @return true if the table holds a value for the state.
+     */
+    public boolean contains(long key) {
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return true;
+            if (k == FREE)
+                return base != null && base.contains(key);
+        }
+    }
+
+    /**
+     * Sets the Q-value of a state.
+     *
+     * @param key the state key.
+     * @param value the new value.
+     */
+    @Override
+    public void put(long key, double value) {
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            if (k == FREE) {
+                keys[i] = key;
+                values[i] = value;
+                if (base != null && base.contains(key))
+                    overridden++;
+                if (++size * 2 > keys.length)
+                    grow();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    @Override
+    public int size() {
+        return base != null ? size + base.size() - overridden : size;
+    }
+
+    /**
+     * @return a copy of the table that shares the same read-only base.
+     */
+    public QTable copy() {
+        QTable copy = new QTable(8, base);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.size = size;
+        copy.overridden = overridden;
+        return copy;
+    }
+
+    /**
+     * Calls the visitor for every entry, in no particular order.
+     *
+     * @param visitor the visitor.
+     */
+    @Override
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE)
+                visitor.visit(keys[i], values[i]);
+        }
+        if (base != null) {
+            base.forEach((key, value) -> {
+                if (!containsOwn(key))
+                    visitor.visit(key, value);
+            });
+        }
+    }
+
+    private boolean containsOwn(long key) {
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return true;
+            if (k == FREE)
+                return false;
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int j = index(oldKeys[i]);
+                while (keys[j] != FREE)
+                    j = (j + 1) & mask;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new double[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+
+    private int index(long key) {
+        return hash(key, mask);
+    }
+
+    /**
+     * @param key the state key.
+     * @param mask the capacity of the table minus one.
+     * @return the first slot to probe for the key.
+     */
+    static int hash(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file format for Q-tables.
+ * <p>
+ * The file is the hash table itself, so it can be memory-mapped read-only and used right away
+ * instead of being parsed:
+ * <pre>
+ * header (32 bytes): magic "QTAB", version, capacity, entry count, CRC32 of the slots, first journal segment,
+ *                    flags, 4 reserved bytes
+ * slots (16 bytes each): long key (-1 when free), double value
+ * </pre>
+ * Slots are filled by linear probing from {@link QTable#hash(long, int)}, the same way as {@link QTable}.
+ * The mapped pages are shared by every agent and every process that maps the same file.
+ * <p>
+ * The first journal segment is the first {@link QTableJournal} segment of the DB that is newer than the
+ * file: the older segments are already part of it, and are not replayed over it. Files written before the
+ * field existed hold 0 there, so all their segments are replayed.
+ * <p>
+ * The tables are folded by {@link Symmetry#fold(QValues)} when they are written, and the CANONICAL flag tells
+ * the loader that the keys are canonical, so it doesn't check them again on every load.
+ * <p>
+ * The main method converts between the text DB files and the binary format.
+ */
+public class QTableFile {
+
+    private static final int MAGIC = 0x51544142; // "QTAB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+    private static final long FREE = -1;
+    private static final int CANONICAL = 1; // Flag: every key is canonical
+
+    /**
+     * Converts a text DB file to the binary format, or back.
+     * The direction is chosen from the extension of the input file.
+     *
+     * @param args the input file and the output file, for example "DBForX.txt DBForX.bin".
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("usage: java QTableFile <input .txt or .bin> <output .bin or .txt>");
+            return;
+        }
+        Path input = Paths.get(args[0]), output = Paths.get(args[1]);
+        long start = System.nanoTime();
+        QTable table;
+        if (args[0].endsWith(".bin")) {
+            table = new QTable(map(input));
+            writeText(table, output);
+        }
+        else {
+            table = readText(input);
+            write(table, output);
+        }
+        System.out.println("converted " + table.size() + " entries in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Reads a text DB file where every line is "state:value".
+     *
+     * @param path the file to read.
+     * @return a new table with the entries of the file.
+     */
+    public static QTable readText(Path path) throws IOException {
+        QTable table = new QTable();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int colon = line.indexOf(':');
+                table.put(QLearningAgent.parseKey(line.substring(0, colon)), Double.parseDouble(line.substring(colon + 1)));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Writes a table as a text DB file where every line is "state:value".
+     *
+     * @param table the table to write.
+     * @param path the file to write.
+     */
+    public static void writeText(QTable table, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            table.forEach((key, value) -> {
+                try {
+                    writer.write(QLearningAgent.keyToString(key) + ":" + value);
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes a table in the binary format, with the symmetric states folded together. The file is written
+     * next to its destination and renamed over it, so readers never see a half written file. The journal
+     * segments of the DB that exist now are older than the table, so they won't be replayed over it.
+     *
+     * @param table the table to write.
+     * @param path the file to write.
+     */
+    public static void write(QValues table, Path path) throws IOException {
+        String name = path.toString();
+        String prefix = name.endsWith(".bin") ? name.substring(0, name.length() - 4) : name;
+        write(table, path, QTableJournal.nextSegment(prefix));
+    }
+
+    /**
+     * Writes a table in the binary format, see {@link #write(QValues, Path)}.
+     *
+     * @param table the table to write.
+     * @param path the file to write.
+     * @param firstSegment the first journal segment with updates that the table doesn't have.
+     */
+    static void write(QValues table, Path path, int firstSegment) throws IOException {
+        table = Symmetry.fold(table);
+        int count = table.size();
+        int capacity = Integer.highestOneBit(Math.max(count, 4) * 2 - 1) * 2;
+        int mask = capacity - 1;
+        ByteBuffer slots = ByteBuffer.allocate(capacity * SLOT_SIZE);
+        for (int i = 0; i < capacity; i++)
+            slots.putLong(i * SLOT_SIZE, FREE);
+        table.forEach((key, value) -> {
+            int i = QTable.hash(key, mask);
+            while (slots.getLong(i * SLOT_SIZE) != FREE)
+                i = (i + 1) & mask;
+            slots.putLong(i * SLOT_SIZE, key);
+            slots.putDouble(i * SLOT_SIZE + 8, value);
+        });
+
+        CRC32 crc = new CRC32();
+        crc.update(slots.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(capacity).putInt(count).putInt((int) crc.getValue())
+                .putInt(firstSegment).putInt(CANONICAL);
+        header.clear();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining())
+                channel.write(header);
+            while (slots.hasRemaining())
+                channel.write(slots);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a binary table read-only.
+     *
+     * @param path the file to map.
+     * @return a read-only view of the table.
+     * @throws IOException if the file can't be read, has the wrong version or fails its checksum.
+     */
+    public static Mapped map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException(path + " is not a Q-table file");
+            int capacity = buffer.getInt(8);
+            int count = buffer.getInt(12);
+            if (Integer.bitCount(capacity) != 1 || buffer.limit() != HEADER_SIZE + (long) capacity * SLOT_SIZE)
+                throw new IOException(path + " is truncated");
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_SIZE, capacity * SLOT_SIZE));
+            if ((int) crc.getValue() != buffer.getInt(16))
+                throw new IOException(path + " failed its checksum");
+            return new Mapped(buffer.slice(HEADER_SIZE, capacity * SLOT_SIZE), capacity, count, buffer.getInt(20),
+                    (buffer.getInt(24) & CANONICAL) != 0);
+        }
+    }
+
+    /**
+     * Reads the first journal segment from the header of a binary table, without checking the rest.
+     *
+     * @param path the file to read.
+     * @return the first segment newer than the table, or 0 if the file doesn't exist or is not a Q-table file.
+     */
+    static int firstSegment(Path path) throws IOException {
+        if (!Files.exists(path))
+            return 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read until the header is full or the file ends
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                return 0;
+            return header.getInt(20);
+        }
+    }
+
+    /**
+     * A read-only Q-table backed by a mapped file. Safe to share between threads.
+     */
+    public static class Mapped {
+        private final ByteBuffer slots;
+        private final int mask;
+        private final int count;
+        private final int firstSegment;
+        private final boolean canonical;
+
+        private Mapped(ByteBuffer slots, int capacity, int count, int firstSegment, boolean canonical) {
+            this.slots = slots;
+            this.mask = capacity - 1;
+            this.count = count;
+            this.firstSegment = firstSegment;
+            this.canonical = canonical;
+        }
+
+        /**
+         * @param key the state key.
+         * @param defaultValue the value to return if the key is not in the table.
+         * @return the Q-value of the state, or {@code defaultValue}.
+         */
+        public double get(long key, double defaultValue) {
+            for (int i = QTable.hash(key, mask); ; i = (i + 1) & mask) {
+                long k = slots.getLong(i * SLOT_SIZE);
+                if (k == key)
+                    return slots.getDouble(i * SLOT_SIZE + 8);
+                if (k == FREE)
+                    return defaultValue;
+            }
+        }
+
+        /**
+         * @param key the state key.
+         * @return true if the table holds a value for the state.
+         */
+        public boolean contains(long key) {
+            for (int i = QTable.hash(key, mask); ; i = (i + 1) & mask) {
+                long k = slots.getLong(i * SLOT_SIZE);
+                if (k == key)
+                    return true;
+                if (k == FREE)
+                    return false;
+            }
+        }
+
+        /**
+         * @return the number of entries.
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return the first journal segment with updates that the table doesn't have.
+         */
+        public int getFirstSegment() {
+            return firstSegment;
+        }
+
+        /**
+         * @return true if every key is canonical, as in the files written since the flag exists.
+         */
+        public boolean isCanonical() {
+            return canonical;
+        }
+
+        /**
+         * Calls the visitor for every entry, in no particular order.
+         *
+         * @param visitor the visitor.
+         */
+        public void forEach(QTable.Visitor visitor) {
+            for (int i = 0; i <= mask; i++) {
+                long k = slots.getLong(i * SLOT_SIZE);
+                if (k != FREE)
+                    visitor.visit(k, slots.getDouble(i * SLOT_SIZE + 8));
+            }
+        }
+    }
+}
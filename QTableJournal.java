@@ -0,0 +1,237 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of Q-table updates, so that a training run can crash at any point
+ * without losing more than the last unwritten batch.
+ * <p>
+ * Every update appends the new value of a state. Updates are written in batches, each framed by its
+ * record count and CRC32, to journal segments named "&lt;prefix&gt;.journal.&lt;n&gt;". Every
+ * {@value #COMPACT_EVERY} batches the journal moves to a new segment and a background thread writes a
+ * copy of the table as the "&lt;prefix&gt;.bin" snapshot (see {@link QTableFile}, which renames the file
+ * into place atomically) and then deletes the older segments.
+ * <p>
+ * Recovery loads the snapshot and replays the remaining segments in order, from the first segment that the
+ * snapshot records in its header: every snapshot, also those written without a journal, holds the updates
+ * of the segments before it, and replaying them would undo the changes made since. A batch that was torn
+ * by a crash fails its checksum and ends the replay of its segment.
+ */
+public class QTableJournal implements Closeable {
+
+    private static final int BATCH = 256; // Records per batch
+    private static final int RECORD_SIZE = 16;
+    private static final int FRAME_HEADER = 8;
+    private static final int COMPACT_EVERY = 64; // Batches per segment
+
+    private final String prefix;
+    private final QTable table;
+    private final Runnable onSnapshot;
+    private final ByteBuffer batch = ByteBuffer.allocate(FRAME_HEADER + BATCH * RECORD_SIZE);
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "q-table-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FileChannel channel;
+    private int segment;
+    private int records;
+    private int batches;
+    private Future<?> compaction;
+
+    /**
+     * Opens a new journal segment after the existing ones.
+     *
+     * @param prefix the DB file name without extension, for example "DBForX".
+     * @param table the table whose updates are journaled.
+     * @param onSnapshot called on the compaction thread after a new snapshot is in place, may be null.
+     */
+    public QTableJournal(String prefix, QTable table, Runnable onSnapshot) throws IOException {
+        this.prefix = prefix;
+        this.table = table;
+        this.onSnapshot = onSnapshot;
+        segment = nextSegment(prefix);
+        openSegment();
+        batch.position(FRAME_HEADER);
+    }
+
+    /**
+     * Replays the journal segments of a DB into a table that holds its snapshot.
+     *
+     * @param prefix the DB file name without extension.
+     * @param table the table to update.
+     * @param firstSegment the first segment that is newer than the snapshot, see
+     *                     {@link QTableFile.Mapped#getFirstSegment()}, or 0 to replay them all.
+     * @return the number of records replayed.
+     */
+    public static int recover(String prefix, QTable table, int firstSegment) throws IOException {
+        int replayed = 0;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        for (int n : segments(prefix)) {
+            if (n < firstSegment)
+                continue;
+            try (FileChannel in = FileChannel.open(segmentPath(prefix, n), StandardOpenOption.READ)) {
+                while (true) {
+                    header.clear();
+                    if (readFully(in, header) < FRAME_HEADER)
+                        break;
+                    int count = header.getInt(0);
+                    if (count <= 0 || count > BATCH)
+                        break;
+                    ByteBuffer body = ByteBuffer.allocate(count * RECORD_SIZE);
+                    if (readFully(in, body) < body.capacity())
+                        break;
+                    CRC32 crc = new CRC32();
+                    crc.update(body.array());
+                    if ((int) crc.getValue() != header.getInt(4))
+                        break;
+                    for (int i = 0; i < count; i++)
+                        table.put(body.getLong(i * RECORD_SIZE), body.getDouble(i * RECORD_SIZE + 8));
+                    replayed += count;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Records the new value of a state.
+     *
+     * @param key the state key.
+     * @param value the new Q-value.
+     */
+    public void append(long key, double value) throws IOException {
+        batch.putLong(key).putDouble(value);
+        if (++records == BATCH)
+            flush();
+    }
+
+    /**
+     * Writes the pending records as one batch, and starts a compaction every {@value #COMPACT_EVERY} batches.
+     */
+    public void flush() throws IOException {
+        if (records == 0)
+            return;
+        CRC32 crc = new CRC32();
+        crc.update(batch.array(), FRAME_HEADER, records * RECORD_SIZE);
+        batch.putInt(0, records).putInt(4, (int) crc.getValue());
+        batch.flip();
+        while (batch.hasRemaining())
+            channel.write(batch);
+        batch.clear();
+        batch.position(FRAME_HEADER);
+        records = 0;
+
+        if (++batches >= COMPACT_EVERY && (compaction == null || compaction.isDone()))
+            compact(false);
+    }
+
+    /**
+     * Moves to a new segment and writes a snapshot of the table in the background.
+     *
+     * @param wait true to block until the snapshot is written.
+     */
+    public void compact(boolean wait) throws IOException {
+        flush();
+        channel.force(false);
+        channel.close();
+        int firstKept = ++segment;
+        openSegment();
+        batches = 0;
+
+        QTable snapshot = table.copy();
+        Future<?> previous = compaction;
+        compaction = compactor.submit(() -> {
+            try {
+                if (previous != null)
+                    previous.get();
+                QTableFile.write(snapshot, Paths.get(prefix + ".bin"), firstKept);
+                if (onSnapshot != null)
+                    onSnapshot.run();
+                for (int n : segments(prefix)) {
+                    if (n < firstKept)
+                        Files.deleteIfExists(segmentPath(prefix, n));
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        if (wait) {
+            try {
+                compaction.get();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending records and waits for a running compaction.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+        try {
+            if (compaction != null)
+                compaction.get();
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            compactor.shutdown();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(segmentPath(prefix, segment), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @param prefix the DB file name without extension.
+     * @return the number of the next journal segment, after the existing segments and the segments that
+     *         the snapshot already holds.
+     */
+    static int nextSegment(String prefix) throws IOException {
+        List<Integer> segments = segments(prefix);
+        int next = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+        return Math.max(next, QTableFile.firstSegment(Paths.get(prefix + ".bin")));
+    }
+
+    private static Path segmentPath(String prefix, int n) {
+        return Paths.get(prefix + ".journal." + n);
+    }
+
+    private static List<Integer> segments(String prefix) throws IOException {
+        Path base = Paths.get(prefix).toAbsolutePath();
+        String name = base.getFileName() + ".journal.";
+        List<Integer> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(base.getParent(), name + "*")) {
+            for (Path file : files) {
+                try {
+                    segments.add(Integer.parseInt(file.getFileName().toString().substring(name.length())));
+                } catch (NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static int readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0)
+                break;
+        }
+        return buffer.position();
+    }
+}
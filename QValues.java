@@ -0,0 +1,48 @@
+/**
+ * A store of Q-values keyed by state, see {@link QLearningAgent#canonicalKey(long, int)}.
+ */
+public interface QValues {
+
+    /**
+     * @param key the state key.
+     * @param defaultValue the value to return if the key is not in the store.
+     * @return the Q-value of the state, or {@code defaultValue}.
+     */
+    double get(long key, double defaultValue);
+
+    /**
+     * Sets the Q-value of a state.
+     *
+     * @param key the state key.
+     * @param value the new value.
+     */
+    void put(long key, double value);
+
+    /**
+     * Moves the Q-value of a state towards a target: {@code Q = Q + rate * (target - Q)}.
+     * Stores that are shared between threads apply the whole update atomically.
+     *
+     * @param key the state key.
+     * @param target the target value.
+     * @param rate the learning rate.
+     * @return the new value.
+     */
+    default double learn(long key, double target, double rate) {
+        double current = get(key, 0.0);
+        double updated = current + rate * (target - current);
+        put(key, updated);
+        return updated;
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    int size();
+
+    /**
+     * Calls the visitor for every entry, in no particular order.
+     *
+     * @param visitor the visitor.
+     */
+    void forEach(QTable.Visitor visitor);
+}
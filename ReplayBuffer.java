@@ -0,0 +1,140 @@
+import java.util.Random;
+
+/**
+ * Fixed-capacity ring of the latest Q-learning transitions, kept in primitive arrays so that recording
+ * and sampling never allocate. When the ring is full the oldest transition is overwritten.
+ * <p>
+ * A transition is the key of the state before a move, the reward of the move and the key of the state
+ * after it, see {@link QLearningAgent#canonicalKey(long, int)}. Replaying it again later lets a reward that
+ * was only seen at the end of a game reach the moves that led there, without playing more games.
+ * <p>
+ * Transitions are sampled uniformly, or in proportion to their last TD error raised to {@link #ALPHA}
+ * when the buffer is prioritized. New transitions get the highest priority seen so far, so that every
+ * one of them is replayed at least once soon. The priorities are kept in a sum tree, which makes
+ * sampling and updating a priority logarithmic in the capacity.
+ */
+public class ReplayBuffer {
+
+    /**
+     * How strongly the TD error skews prioritized sampling: 0 is uniform, 1 is fully proportional.
+     */
+    public static final double ALPHA = 0.6;
+    private static final double MIN_PRIORITY = 1e-3;
+
+    private final long[] keys;
+    private final long[] nextKeys;
+    private final int[] rewards;
+    private final double[] tree; // the leaves hold the priorities, every other node the sum of its children
+    private final boolean prioritized;
+    private final int capacity;
+    private int head = 0;
+    private int size = 0;
+    private double maxPriority = 1.0;
+
+    /**
+     * Constructs an empty buffer.
+     *
+     * @param capacity the number of transitions kept, rounded up to a power of two.
+     * @param prioritized true to sample transitions by TD error, false to sample them uniformly.
+     */
+    public ReplayBuffer(int capacity, boolean prioritized) {
+        this.capacity = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1);
+        this.prioritized = prioritized;
+        keys = new long[this.capacity];
+        nextKeys = new long[this.capacity];
+        rewards = new int[this.capacity];
+        tree = prioritized ? new double[this.capacity * 2] : null;
+    }
+
+    /**
+     * Records a transition, overwriting the oldest one when the buffer is full.
+     *
+     * @param key the key of the state before the move.
+     * @param reward the reward of the move.
+     * @param nextKey the key of the state after the move.
+     */
+    public void add(long key, int reward, long nextKey) {
+        keys[head] = key;
+        rewards[head] = reward;
+        nextKeys[head] = nextKey;
+        if (prioritized)
+            setPriority(head, maxPriority);
+        head = (head + 1) & (capacity - 1);
+        if (size < capacity)
+            size++;
+    }
+
+    /**
+     * Picks a recorded transition at random.
+     *
+     * @param random the random number generator.
+     * @return the index of the transition, for {@link #key(int)}, {@link #reward(int)} and {@link #nextKey(int)}.
+     * @throws IllegalStateException if the buffer is empty.
+     */
+    public int sample(Random random) {
+        if (size == 0)
+            throw new IllegalStateException("the replay buffer is empty");
+        if (!prioritized)
+            return random.nextInt(size);
+
+        // walk down the sum tree towards the leaf that covers the random point
+        double point = random.nextDouble() * tree[1];
+        int node = 1;
+        while (node < capacity) {
+            node *= 2;
+            if (point >= tree[node]) {
+                point -= tree[node];
+                node++;
+            }
+        }
+        int index = node - capacity;
+        return index < size ? index : random.nextInt(size); // rounding can step past the last filled leaf
+    }
+
+    /**
+     * Records the TD error of a transition after it was replayed. Does nothing if the buffer is uniform.
+     *
+     * @param index the index returned by {@link #sample(Random)}.
+     * @param tdError the difference between the target and the value before the update.
+     */
+    public void updatePriority(int index, double tdError) {
+        if (!prioritized)
+            return;
+        double priority = Math.pow(Math.abs(tdError) + MIN_PRIORITY, ALPHA);
+        if (priority > maxPriority)
+            maxPriority = priority;
+        setPriority(index, priority);
+    }
+
+    private void setPriority(int index, double priority) {
+        int node = index + capacity;
+        tree[node] = priority;
+        // recompute the sums rather than adding the difference, so rounding errors don't pile up
+        for (node /= 2; node > 0; node /= 2)
+            tree[node] = tree[2 * node] + tree[2 * node + 1];
+    }
+
+    public long key(int index) {
+        return keys[index];
+    }
+
+    public int reward(int index) {
+        return rewards[index];
+    }
+
+    public long nextKey(int index) {
+        return nextKeys[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isPrioritized() {
+        return prioritized;
+    }
+}
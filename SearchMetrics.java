@@ -0,0 +1,59 @@
+/**
+ * Receives the events of a {@link MinMaxAgent} search, see {@link MinMaxAgent#changeMetrics(SearchMetrics)}.
+ * Every method does nothing by default. The events are sent from the threads that search, possibly
+ * several at once, so implementations have to be thread-safe.
+ */
+public interface SearchMetrics {
+
+    /**
+     * Ignores every event. When no agent uses other metrics the calls are inlined away, so a search
+     * without metrics runs as fast as before they existed.
+     */
+    SearchMetrics NONE = new SearchMetrics() {
+    };
+
+    /**
+     * A node is entered.
+     *
+     * @param ply the distance from the root of the search.
+     */
+    default void node(int ply) {
+    }
+
+    /**
+     * The moves of a node are generated.
+     *
+     * @param children the number of moves.
+     */
+    default void expanded(int children) {
+    }
+
+    /**
+     * The transposition table is probed.
+     *
+     * @param hit true if it has an entry for the node, whatever its depth.
+     */
+    default void probe(boolean hit) {
+    }
+
+    /**
+     * The score of a node is taken from the transposition table without searching it.
+     */
+    default void tableCutoff() {
+    }
+
+    /**
+     * A move is good enough to stop searching the other moves of its node.
+     */
+    default void betaCutoff() {
+    }
+
+    /**
+     * A move is chosen.
+     *
+     * @param nanos the time the agent took to choose it.
+     * @param depth the depth of the deepest completed search.
+     */
+    default void move(long nanos, int depth) {
+    }
+}
@@ -0,0 +1,207 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts the events of the searches of one or more {@link MinMaxAgent}s: nodes, branching factor, depth,
+ * transposition table hits and cutoffs, and the time taken per move. The counters can be shared by agents
+ * on several threads.
+ * <p>
+ * The results can be read as JSON with {@link #toJson()}, as a CSV line with {@link #toCsv()}, or from a
+ * JMX console once {@link #register(String)} was called.
+ */
+public class SearchStats implements SearchMetrics, SearchStatsMBean {
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder expanded = new LongAdder();
+    private final LongAdder children = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder tableCutoffs = new LongAdder();
+    private final LongAdder betaCutoffs = new LongAdder();
+    private final LongAdder depths = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator maxPly = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram moveTimes = new LatencyHistogram();
+
+    @Override
+    public void node(int ply) {
+        nodes.increment();
+        if (ply > maxPly.get())
+            maxPly.accumulate(ply);
+    }
+
+    @Override
+    public void expanded(int count) {
+        expanded.increment();
+        children.add(count);
+    }
+
+    @Override
+    public void probe(boolean hit) {
+        probes.increment();
+        if (hit)
+            hits.increment();
+    }
+
+    @Override
+    public void tableCutoff() {
+        tableCutoffs.increment();
+    }
+
+    @Override
+    public void betaCutoff() {
+        betaCutoffs.increment();
+    }
+
+    @Override
+    public void move(long nanos, int depth) {
+        moves.increment();
+        depths.add(depth);
+        this.nanos.add(nanos);
+        moveTimes.record(nanos);
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        long time = nanos.sum();
+        return time == 0 ? 0 : getNodes() * 1e9 / time;
+    }
+
+    /**
+     * @return the average number of moves of the nodes that were expanded.
+     */
+    @Override
+    public double getBranchingFactor() {
+        long count = expanded.sum();
+        return count == 0 ? 0 : (double) children.sum() / count;
+    }
+
+    /**
+     * @return the average depth of the deepest completed search of every move.
+     */
+    @Override
+    public double getAverageDepth() {
+        long count = getMoves();
+        return count == 0 ? 0 : (double) depths.sum() / count;
+    }
+
+    @Override
+    public long getMaxPly() {
+        return maxPly.get();
+    }
+
+    @Override
+    public long getTableProbes() {
+        return probes.sum();
+    }
+
+    @Override
+    public double getTableHitRate() {
+        long count = getTableProbes();
+        return count == 0 ? 0 : (double) hits.sum() / count;
+    }
+
+    @Override
+    public long getTableCutoffs() {
+        return tableCutoffs.sum();
+    }
+
+    @Override
+    public long getBetaCutoffs() {
+        return betaCutoffs.sum();
+    }
+
+    @Override
+    public long getMoveMicrosP50() {
+        return moveTimes.getPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getMoveMicrosP99() {
+        return moveTimes.getPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getMoveMicrosMax() {
+        return moveTimes.getMax() / 1000;
+    }
+
+    /**
+     * @return the histogram of the time taken per move, in nanoseconds.
+     */
+    public LatencyHistogram getMoveTimes() {
+        return moveTimes;
+    }
+
+    /**
+     * Sets every counter back to 0.
+     */
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[]{moves, nodes, expanded, children, probes, hits, tableCutoffs,
+                betaCutoffs, depths, nanos})
+            adder.reset();
+        maxPly.reset();
+        moveTimes.reset();
+    }
+
+    /**
+     * Makes the counters readable from JMX consoles, under "AI_tic_tac_to:type=SearchStats,name=...".
+     *
+     * @param name the name that tells these counters apart from others, for example "X".
+     */
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("AI_tic_tac_to:type=SearchStats,name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the column names of {@link #toCsv()}.
+     */
+    public static String csvHeader() {
+        return "moves,nodes,nodes_per_second,branching_factor,average_depth,max_ply,table_probes,table_hit_rate,"
+                + "table_cutoffs,beta_cutoffs,move_us_p50,move_us_p99,move_us_max";
+    }
+
+    /**
+     * @return the counters as a line of comma separated values, see {@link #csvHeader()}.
+     */
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%d,%d,%.1f,%.3f,%.3f,%d,%d,%.4f,%d,%d,%d,%d,%d",
+                getMoves(), getNodes(), getNodesPerSecond(), getBranchingFactor(), getAverageDepth(), getMaxPly(),
+                getTableProbes(), getTableHitRate(), getTableCutoffs(), getBetaCutoffs(),
+                getMoveMicrosP50(), getMoveMicrosP99(), getMoveMicrosMax());
+    }
+
+    /**
+     * @return the counters as a JSON object.
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"moves\":%d,\"nodes\":%d,\"nodesPerSecond\":%.1f,"
+                        + "\"branchingFactor\":%.3f,\"averageDepth\":%.3f,\"maxPly\":%d,\"tableProbes\":%d,"
+                        + "\"tableHitRate\":%.4f,\"tableCutoffs\":%d,\"betaCutoffs\":%d,"
+                        + "\"moveMicros\":{\"p50\":%d,\"p99\":%d,\"max\":%d}}",
+                getMoves(), getNodes(), getNodesPerSecond(), getBranchingFactor(), getAverageDepth(), getMaxPly(),
+                getTableProbes(), getTableHitRate(), getTableCutoffs(), getBetaCutoffs(),
+                getMoveMicrosP50(), getMoveMicrosP99(), getMoveMicrosMax());
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * JMX view of a {@link SearchStats}.
+ */
+public interface SearchStatsMBean {
+
+    long getMoves();
+
+    long getNodes();
+
+    double getNodesPerSecond();
+
+    double getBranchingFactor();
+
+    double getAverageDepth();
+
+    long getMaxPly();
+
+    long getTableProbes();
+
+    double getTableHitRate();
+
+    long getTableCutoffs();
+
+    long getBetaCutoffs();
+
+    long getMoveMicrosP50();
+
+    long getMoveMicrosP99();
+
+    long getMoveMicrosMax();
+
+    void reset();
+}
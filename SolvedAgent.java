@@ -0,0 +1,77 @@
+import java.io.IOException;
+
+/**
+ * The SolvedAgent class represents a perfect player. It answers every move with a single lookup
+ * in the table built by {@link Solver}: it wins as fast as possible when it can, keeps the game
+ * going when it is drawn, and loses as slowly as possible otherwise.
+ */
+public class SolvedAgent extends Agent {
+
+    private final short[] table;
+
+    private static short[] sharedTable; // Loaded once and shared by all the agents
+
+    /**
+     * Constructs a SolvedAgent. The table is loaded from {@value Solver#FILE_PATH},
+     * or solved on the spot if the file can't be read, and shared by all the agents of the process.
+     */
+    public SolvedAgent() {
+        this(loadTable());
+    }
+
+    private static synchronized short[] loadTable() {
+        if (sharedTable == null) {
+            try {
+                sharedTable = Solver.read(Solver.FILE_PATH);
+            } catch (IOException e) {
+                sharedTable = Solver.solve();
+            }
+        }
+        return sharedTable;
+    }
+
+    /**
+     * Constructs a SolvedAgent that shares an already solved table.
+     *
+     * @param table the table returned by {@link Solver#solve()} or {@link Solver#read(String)}.
+     */
+    public SolvedAgent(short[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Determines the best move by looking up the current state.
+     *
+     * @param board the current state of the game board.
+     * @param turn the current turn number.
+     * @return an array of two integers representing the row and column of the move.
+     */
+    @Override
+    public int[] getPlayMove(int[][] board, int turn) {
+        return BitBoard.toMove(getPlayCell(BitBoard.fromBoard(board, turn)));
+    }
+
+    /**
+     * Determines the best move by looking up the current state.
+     *
+     * @param state the current state of the game.
+     * @return the cell index of the move.
+     */
+    @Override
+    public int getPlayCell(long state) {
+        int cell = Solver.move(table[StateIndex.index(state)]);
+        if (cell == BitBoard.NONE)
+            cell = Integer.numberOfTrailingZeros(BitBoard.emptyCells(state));
+        return cell;
+    }
+
+    /**
+     * Looks up the outcome of a state with perfect play.
+     *
+     * @param state the game state.
+     * @return {@link Solver#WIN}, {@link Solver#LOSS} or {@link Solver#DRAW} for the side to move.
+     */
+    public int getOutcome(long state) {
+        return Solver.outcome(table[StateIndex.index(state)]);
+    }
+}
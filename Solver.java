@@ -0,0 +1,234 @@
+import java.io.*;
+
+/**
+ * Solves the game exactly by retrograde analysis.
+ * <p>
+ * Because only the last 6 pieces stay on the board, the game has less than 140,000 normalized
+ * states (see {@link StateIndex}). The solver finds every state reachable from the empty board,
+ * marks the states where the previous move completed a line as lost for the side to move, and
+ * works backwards from them: a state is won in n + 1 moves if some move leads to a state lost in n,
+ * and lost in n + 1 if every move leads to a state won by the opponent, the slowest in n.
+ * States that are never resolved are draws, the players can keep the game going forever.
+ * <p>
+ * Every state is stored as a {@code short} holding the outcome for the side to move, the distance
+ * in moves to the end of the game with perfect play and the move that achieves it.
+ */
+public class Solver {
+
+    public static final int UNKNOWN = 0; // Unreachable state
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    public static final int DRAW = 3;
+
+    public static final String FILE_PATH = "Solved.bin";
+
+    private static final int MAGIC = 0x534F4C56; // "SOLV"
+    private static final int VERSION = 1;
+
+    /**
+     * Solves the game and writes the table to {@value #FILE_PATH}.
+     *
+     * @param args command-line arguments (not used).
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        short[] table = solve();
+        write(table, FILE_PATH);
+
+        int[] counts = new int[4];
+        for (short entry : table)
+            counts[outcome(entry)]++;
+        short root = table[StateIndex.index(BitBoard.EMPTY)];
+        System.out.println("solved in " + (System.nanoTime() - start) / 1_000_000 + " ms\n" +
+                "won states: " + counts[WIN] + ", lost states: " + counts[LOSS] + ", drawn states: " + counts[DRAW] + "\n" +
+                "the empty board is " + new String[]{"unknown", "won", "lost", "drawn"}[outcome(root)] + " for X");
+    }
+
+    /**
+     * Solves the game.
+     *
+     * @return the table of all states, indexed by {@link StateIndex#index(long)}.
+     */
+    public static short[] solve() {
+        int count = StateIndex.COUNT;
+        long[] states = new long[count];
+        boolean[] reached = new boolean[count];
+
+        // find the reachable states and the moves between them
+        int[] queue = new int[count];
+        int[] moveStart = new int[count + 1];
+        int[] moveTarget = new int[count * BitBoard.CELLS];
+        int[] order = new int[count];
+        int head = 0, tail = 0, moves = 0;
+
+        int root = StateIndex.index(BitBoard.EMPTY);
+        states[root] = BitBoard.EMPTY;
+        reached[root] = true;
+        queue[tail++] = root;
+        while (head < tail) {
+            int index = queue[head];
+            order[head++] = index;
+            long state = states[index];
+            moveStart[index] = moves;
+            if (BitBoard.winner(state) != BitBoard.NO_WINNER)
+                continue;
+            for (int empty = BitBoard.emptyCells(state); empty != 0; empty &= empty - 1) {
+                long next = StateIndex.normalize(BitBoard.apply(state, Integer.numberOfTrailingZeros(empty)));
+                int target = StateIndex.index(next);
+                moveTarget[moves++] = target;
+                if (!reached[target]) {
+                    reached[target] = true;
+                    states[target] = next;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        int reachable = tail;
+        // moves of state i are moveTarget[moveStart[i] .. moveEnd[i])
+        int[] moveEnd = new int[count];
+        for (int i = 0; i < reachable; i++) {
+            int index = order[i];
+            moveEnd[index] = i + 1 < reachable ? moveStart[order[i + 1]] : moves;
+        }
+
+        // reverse the moves so that every state knows its predecessors
+        int[] predStart = new int[count + 1];
+        for (int i = 0; i < moves; i++)
+            predStart[moveTarget[i] + 1]++;
+        for (int i = 0; i < count; i++)
+            predStart[i + 1] += predStart[i];
+        int[] pred = new int[moves];
+        int[] fill = predStart.clone();
+        for (int i = 0; i < reachable; i++) {
+            int index = order[i];
+            for (int m = moveStart[index]; m < moveEnd[index]; m++)
+                pred[fill[moveTarget[m]]++] = index;
+        }
+
+        // retrograde analysis, one distance at a time
+        byte[] outcome = new byte[count];
+        int[] distance = new int[count];
+        int[] remaining = new int[count];
+        head = 0;
+        tail = 0;
+        for (int i = 0; i < reachable; i++) {
+            int index = order[i];
+            remaining[index] = moveEnd[index] - moveStart[index];
+            if (BitBoard.winner(states[index]) != BitBoard.NO_WINNER) {
+                outcome[index] = LOSS;
+                queue[tail++] = index;
+            }
+        }
+        while (head < tail) {
+            int index = queue[head++];
+            for (int p = predStart[index]; p < predStart[index + 1]; p++) {
+                int previous = pred[p];
+                if (outcome[previous] != UNKNOWN)
+                    continue;
+                if (outcome[index] == LOSS) {
+                    outcome[previous] = WIN;
+                    distance[previous] = distance[index] + 1;
+                    queue[tail++] = previous;
+                }
+                else if (--remaining[previous] == 0) {
+                    outcome[previous] = LOSS;
+                    distance[previous] = distance[index] + 1;
+                    queue[tail++] = previous;
+                }
+            }
+        }
+
+        // pick the move that keeps the outcome
+        short[] table = new short[count];
+        for (int i = 0; i < reachable; i++) {
+            int index = order[i];
+            if (outcome[index] == UNKNOWN)
+                outcome[index] = DRAW;
+        }
+        for (int i = 0; i < reachable; i++) {
+            int index = order[i];
+            long state = states[index];
+            int bestCell = BitBoard.NONE, bestDistance = -1;
+            int m = moveStart[index];
+            for (int empty = BitBoard.emptyCells(state); m < moveEnd[index]; empty &= empty - 1, m++) {
+                int cell = Integer.numberOfTrailingZeros(empty);
+                int target = moveTarget[m];
+                boolean better;
+                if (outcome[index] == WIN)
+                    better = outcome[target] == LOSS && distance[target] == distance[index] - 1;
+                else if (outcome[index] == DRAW)
+                    better = outcome[target] == DRAW;
+                else
+                    better = distance[target] > bestDistance;
+                if (better && (bestCell == BitBoard.NONE || outcome[index] == LOSS)) {
+                    bestCell = cell;
+                    bestDistance = distance[target];
+                }
+            }
+            table[index] = entry(outcome[index], distance[index], bestCell);
+        }
+        return table;
+    }
+
+    /**
+     * @param entry an entry of the table.
+     * @return {@link #WIN}, {@link #LOSS} or {@link #DRAW} for the side to move, or {@link #UNKNOWN}.
+     */
+    public static int outcome(short entry) {
+        return (entry >>> 14) & 0x3;
+    }
+
+    /**
+     * @param entry an entry of the table.
+     * @return the number of moves until the game ends with perfect play, 0 for draws.
+     */
+    public static int distance(short entry) {
+        return entry & 0x3FF;
+    }
+
+    /**
+     * @param entry an entry of the table.
+     * @return the cell of the best move, or {@link BitBoard#NONE} if the game is over.
+     */
+    public static int move(short entry) {
+        return (entry >>> 10) & 0xF;
+    }
+
+    private static short entry(int outcome, int distance, int move) {
+        return (short) (outcome << 14 | move << 10 | distance);
+    }
+
+    /**
+     * Writes a solved table to a file.
+     *
+     * @param table the solved table.
+     * @param filePath the file to write.
+     */
+    public static void write(short[] table, String filePath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(table.length);
+            for (short entry : table)
+                out.writeShort(entry);
+        }
+    }
+
+    /**
+     * Reads a solved table from a file.
+     *
+     * @param filePath the file to read.
+     * @return the solved table.
+     * @throws IOException if the file can't be read or was not written by this version of the solver.
+     */
+    public static short[] read(String filePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != StateIndex.COUNT)
+                throw new IOException(filePath + " is not a solved table");
+            short[] table = new short[StateIndex.COUNT];
+            for (int i = 0; i < table.length; i++)
+                table[i] = in.readShort();
+            return table;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Dense numbering of all the normalized states of the game.
+ * <p>
+ * A state is fully described by its pieces ordered by age and by the side to move
+ * (see {@link BitBoard#key(long)}). Before turn 6 the number of pieces gives the turn, so the side
+ * to move is implied; from turn 6 on there are always 6 pieces and both sides are possible.
+ * The pieces are numbered as an ordered selection of distinct cells, which gives
+ * 1 + 9 + 72 + 504 + 3024 + 15120 states before turn 6 and 2 * 60480 after it.
+ */
+public final class StateIndex {
+
+    private static final int[] OFFSET = new int[BitBoard.WINDOW + 1];
+    private static final int FULL_BOARDS; // Number of ways to place a full window of pieces
+
+    /**
+     * The number of indexes.
+     */
+    public static final int COUNT;
+
+    static {
+        int offset = 0, selections = 1;
+        for (int k = 0; k <= BitBoard.WINDOW; k++) {
+            OFFSET[k] = offset;
+            offset += selections;
+            selections *= BitBoard.CELLS - k;
+        }
+        FULL_BOARDS = offset - OFFSET[BitBoard.WINDOW];
+        // the full board is counted once more for the second side to move
+        COUNT = offset + FULL_BOARDS;
+    }
+
+    private StateIndex() {
+    }
+
+    /**
+     * @param state the game state.
+     * @return the index of the state, between 0 and {@link #COUNT} - 1.
+     */
+    public static int index(long state) {
+        int used = 0, rank = 0, pieces = 0;
+        for (int age = 1; age <= BitBoard.WINDOW; age++) {
+            int cell = BitBoard.pieceAt(state, age);
+            if (cell == BitBoard.NONE)
+                break;
+            rank = rank * (BitBoard.CELLS - pieces) + Integer.bitCount(~used & ((1 << cell) - 1));
+            used |= 1 << cell;
+            pieces++;
+        }
+        int index = OFFSET[pieces] + rank;
+        if (pieces == BitBoard.WINDOW && BitBoard.sideToMove(state) == BitBoard.O)
+            index += FULL_BOARDS;
+        return index;
+    }
+
+    /**
+     * Gives a state the smallest turn number it can have, so that states with the same
+     * index are equal.
+     *
+     * @param state the game state.
+     * @return the state at turn 6 or 7 if the board is full, or at the turn given by the number of pieces.
+     */
+    public static long normalize(long state) {
+        int turn = BitBoard.turn(state);
+        return turn < BitBoard.WINDOW ? state : BitBoard.withTurn(state, BitBoard.WINDOW + (turn & 1));
+    }
+}
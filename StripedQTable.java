@@ -0,0 +1,72 @@
+/**
+ * Q-values shared by several threads, split into stripes that are each guarded by their own lock.
+ * A key always belongs to the same stripe, so threads only wait for each other when they touch
+ * states of the same stripe.
+ */
+public class StripedQTable implements QValues {
+
+    private final QTable[] stripes;
+    private final int mask;
+
+    /**
+     * Constructs an empty table.
+     *
+     * @param stripes the number of stripes, rounded up to a power of two.
+     */
+    public StripedQTable(int stripes) {
+        int count = Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1);
+        this.stripes = new QTable[count];
+        for (int i = 0; i < count; i++)
+            this.stripes[i] = new QTable();
+        mask = count - 1;
+    }
+
+    @Override
+    public double get(long key, double defaultValue) {
+        QTable stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key, defaultValue);
+        }
+    }
+
+    @Override
+    public void put(long key, double value) {
+        QTable stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    @Override
+    public double learn(long key, double target, double rate) {
+        QTable stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.learn(key, target, rate);
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (QTable stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void forEach(QTable.Visitor visitor) {
+        for (QTable stripe : stripes) {
+            synchronized (stripe) {
+                stripe.forEach(visitor);
+            }
+        }
+    }
+
+    private QTable stripe(long key) {
+        // the high bits of the hash, so that the stripes don't all share the same low bits
+        return stripes[(int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask];
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * The 8 symmetries of the board (rotations and reflections), used to store symmetric positions once.
+ * <p>
+ * A symmetry moves the piece of a cell to another cell. Positions that are symmetric to each other play
+ * the same way, so a position can be replaced by its canonical representative: the one of its 8 images
+ * with the smallest key. A move found on the canonical position is mapped back with {@link #fromCanonical(int, int)}.
+ * <p>
+ * Keys are permuted with lookup tables built once, a few cells at a time, so canonicalization doesn't allocate.
+ */
+public final class Symmetry {
+
+    /**
+     * The number of symmetries. Symmetry 0 is the identity.
+     */
+    public static final int COUNT = 8;
+
+    /**
+     * {@code PERMUTATIONS[s][cell]} is the cell that the piece of {@code cell} moves to under symmetry {@code s}.
+     */
+    public static final int[][] PERMUTATIONS = new int[COUNT][BitBoard.CELLS];
+
+    private static final int[][] INVERSE = new int[COUNT][BitBoard.CELLS];
+
+    private static final int Q_BITS = 3; // bits per cell of a Q-table key
+    private static final int Q_CHUNK = 3; // cells per lookup in the Q-table key tables
+    private static final long[][][] Q_TABLES = new long[COUNT][BitBoard.CELLS / Q_CHUNK][1 << (Q_BITS * Q_CHUNK)];
+    private static final int[][] AGE_TABLES = new int[COUNT][256]; // two age slots (two cell indices) at a time
+
+    static {
+        for (int s = 0; s < COUNT; s++) {
+            for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+                int row = cell / BitBoard.SIZE, col = cell % BitBoard.SIZE, last = BitBoard.SIZE - 1;
+                int r, c;
+                switch (s) {
+                    case 0: r = row; c = col; break;
+                    case 1: r = col; c = last - row; break; // rotation by 90 degrees
+                    case 2: r = last - row; c = last - col; break; // rotation by 180 degrees
+                    case 3: r = last - col; c = row; break; // rotation by 270 degrees
+                    case 4: r = row; c = last - col; break; // left-right reflection
+                    case 5: r = last - row; c = col; break; // top-bottom reflection
+                    case 6: r = col; c = row; break; // reflection on the main diagonal
+                    default: r = last - col; c = last - row; break; // reflection on the other diagonal
+                }
+                PERMUTATIONS[s][cell] = BitBoard.cell(r, c);
+                INVERSE[s][BitBoard.cell(r, c)] = cell;
+            }
+
+            for (int chunk = 0; chunk < BitBoard.CELLS / Q_CHUNK; chunk++) {
+                for (int bits = 0; bits < 1 << (Q_BITS * Q_CHUNK); bits++) {
+                    long key = 0;
+                    for (int i = 0; i < Q_CHUNK; i++) {
+                        long value = bits >>> (Q_BITS * i) & ((1 << Q_BITS) - 1);
+                        key |= value << (Q_BITS * PERMUTATIONS[s][chunk * Q_CHUNK + i]);
+                    }
+                    Q_TABLES[s][chunk][bits] = key;
+                }
+            }
+
+            for (int pair = 0; pair < 256; pair++) {
+                int low = pair & 0xF, high = pair >>> 4;
+                AGE_TABLES[s][pair] = mapAge(low, s) | mapAge(high, s) << 4;
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    private static int mapAge(int cell, int s) {
+        return cell < BitBoard.CELLS ? PERMUTATIONS[s][cell] : cell;
+    }
+
+    /**
+     * @param cell a cell of the original position.
+     * @param symmetry the symmetry that makes the position canonical.
+     * @return the same cell on the canonical position.
+     */
+    public static int toCanonical(int cell, int symmetry) {
+        return cell == BitBoard.NONE ? cell : PERMUTATIONS[symmetry][cell];
+    }
+
+    /**
+     * @param cell a cell of the canonical position.
+     * @param symmetry the symmetry that makes the original position canonical.
+     * @return the same cell on the original position.
+     */
+    public static int fromCanonical(int cell, int symmetry) {
+        return cell == BitBoard.NONE ? cell : INVERSE[symmetry][cell];
+    }
+
+    /**
+     * Applies a symmetry to a {@link BitBoard} state. The turn and the ages of the pieces don't change.
+     *
+     * @param state the state.
+     * @param symmetry the symmetry.
+     * @return the symmetric state.
+     */
+    public static long transform(long state, int symmetry) {
+        long ages = transformAges(BitBoard.ages(state), symmetry);
+        int x = 0, o = 0;
+        for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+            int image = PERMUTATIONS[symmetry][cell];
+            x |= (BitBoard.xMask(state) >>> cell & 1) << image;
+            o |= (BitBoard.oMask(state) >>> cell & 1) << image;
+        }
+        return BitBoard.withTurn(x | (long) o << BitBoard.CELLS | ages << (2 * BitBoard.CELLS), BitBoard.turn(state));
+    }
+
+    /**
+     * Finds the symmetry that turns a state into its canonical representative, the image with the
+     * smallest {@link BitBoard#key(long)}. Ties go to the lowest symmetry index.
+     *
+     * @param state the state.
+     * @return the symmetry to pass to {@link #transform(long, int)}, {@link #toCanonical(int, int)}
+     *         and {@link #fromCanonical(int, int)}.
+     */
+    public static int canonical(long state) {
+        int ages = BitBoard.ages(state);
+        int best = 0, bestAges = ages;
+        for (int s = 1; s < COUNT; s++) {
+            int image = transformAges(ages, s);
+            if (image < bestAges) {
+                bestAges = image;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param state the state.
+     * @return the {@link BitBoard#key(long)} of the canonical representative of the state.
+     */
+    public static long canonicalKey(long state) {
+        int ages = BitBoard.ages(state);
+        int bestAges = ages;
+        for (int s = 1; s < COUNT; s++)
+            bestAges = Math.min(bestAges, transformAges(ages, s));
+        return BitBoard.key(state) ^ ages ^ bestAges;
+    }
+
+    /**
+     * Applies a symmetry to a Q-table key, see {@link QLearningAgent#stateKey(long, int)}.
+     *
+     * @param key the key.
+     * @param symmetry the symmetry.
+     * @return the key of the symmetric state.
+     */
+    public static long transformQKey(long key, int symmetry) {
+        long[][] tables = Q_TABLES[symmetry];
+        int mask = (1 << (Q_BITS * Q_CHUNK)) - 1;
+        return tables[0][(int) key & mask]
+                | tables[1][(int) (key >>> (Q_BITS * Q_CHUNK)) & mask]
+                | tables[2][(int) (key >>> (2 * Q_BITS * Q_CHUNK)) & mask];
+    }
+
+    /**
+     * @param key a Q-table key, see {@link QLearningAgent#stateKey(long, int)}.
+     * @return the smallest key of the 8 symmetric states.
+     */
+    public static long canonicalQKey(long key) {
+        long best = key;
+        for (int s = 1; s < COUNT; s++)
+            best = Math.min(best, transformQKey(key, s));
+        return best;
+    }
+
+    /**
+     * Folds the symmetric states of a Q-table together: every canonical key gets the average of the
+     * values of the symmetric states found in the table.
+     *
+     * @param table the table, whose keys may be canonical or not.
+     * @return the table itself if all its keys are already canonical, otherwise a new table with canonical keys.
+     */
+    public static QValues fold(QValues table) {
+        boolean[] canonical = {true};
+        table.forEach((key, value) -> {
+            if (canonical[0] && canonicalQKey(key) != key)
+                canonical[0] = false;
+        });
+        if (canonical[0])
+            return table;
+
+        QTable sums = new QTable(table.size());
+        QTable counts = new QTable(table.size());
+        table.forEach((key, value) -> {
+            long image = canonicalQKey(key);
+            sums.put(image, sums.get(image, 0.0) + value);
+            counts.put(image, counts.get(image, 0.0) + 1);
+        });
+        QTable folded = new QTable(sums.size());
+        sums.forEach((key, sum) -> folded.put(key, sum / counts.get(key, 1.0)));
+        return folded;
+    }
+
+    /**
+     * Folds the symmetric states of a {@link QTable} together, see {@link #fold(QValues)}.
+     *
+     * @param table the table, whose keys may be canonical or not.
+     * @return the table itself if all its keys are already canonical, otherwise a new table with canonical keys.
+     */
+    public static QTable fold(QTable table) {
+        return (QTable) fold((QValues) table);
+    }
+
+    private static int transformAges(int ages, int symmetry) {
+        int[] pairs = AGE_TABLES[symmetry];
+        return pairs[ages & 0xFF] | pairs[ages >>> 8 & 0xFF] << 8 | pairs[ages >>> 16 & 0xFF] << 16;
+    }
+}
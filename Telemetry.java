@@ -0,0 +1,191 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the moves and results of games for an operational view of a long run: the decision time of each
+ * side (p50, p99 and max), games per second, average game length, games stopped after
+ * {@link Game#MAX_TURNS} turns and the size of the Q-tables over time.
+ * <p>
+ * Decision times go into {@link LatencyHistogram}s and counters are striped adders, so recording costs a
+ * few atomic increments and games on several threads can share one instance. With {@link #start(Path, long)}
+ * a snapshot is appended to a file as one JSON object per line at a fixed period, and a last one when the
+ * telemetry is closed.
+ */
+public class Telemetry implements GameListener, Closeable {
+
+    private final LatencyHistogram[] decisions = {new LatencyHistogram(), new LatencyHistogram()};
+    private final LatencyHistogram gameTimes = new LatencyHistogram();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder xWins = new LongAdder();
+    private final LongAdder oWins = new LongAdder();
+    private final LongAdder stopped = new LongAdder();
+    private final Map<String, QValues> tables = new ConcurrentSkipListMap<>();
+    private final long started = System.nanoTime();
+
+    private long lastGames = 0; // Games counted at the previous snapshot
+    private long lastTime = started;
+    private ScheduledExecutorService writer = null;
+    private Path file = null;
+
+    @Override
+    public void move(long state, int cell, long nanos) {
+        decisions[BitBoard.sideToMove(state)].record(nanos);
+    }
+
+    @Override
+    public void gameOver(int winner, int turns, long nanos) {
+        games.increment();
+        this.turns.add(turns);
+        gameTimes.record(nanos);
+        if (winner == BitBoard.X)
+            xWins.increment();
+        else if (winner == BitBoard.O)
+            oWins.increment();
+        else
+            stopped.increment();
+    }
+
+    /**
+     * Adds the size of a Q-table to the snapshots.
+     *
+     * @param name the name of the table in the snapshots.
+     * @param table the table.
+     */
+    public void watch(String name, QValues table) {
+        tables.put(name, table);
+    }
+
+    /**
+     * Starts appending a snapshot to a file at a fixed period, on a background thread.
+     *
+     * @param file the file to append to.
+     * @param periodMillis the period in milliseconds.
+     */
+    public synchronized void start(Path file, long periodMillis) {
+        if (writer != null)
+            return;
+        this.file = file;
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "telemetry-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleAtFixedRate(this::write, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic snapshots and writes a last one.
+     */
+    @Override
+    public synchronized void close() {
+        if (writer == null)
+            return;
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write();
+        writer = null;
+    }
+
+    private synchronized void write() {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            out.write(snapshot());
+            out.write('\n');
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the telemetry. The games per second are counted since the previous snapshot.
+     *
+     * @return the snapshot as a JSON object on one line.
+     */
+    public synchronized String snapshot() {
+        long now = System.nanoTime();
+        long count = games.sum();
+        double rate = now == lastTime ? 0 : (count - lastGames) * 1e9 / (now - lastTime);
+        lastGames = count;
+        lastTime = now;
+
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"time\":%d,\"elapsedSeconds\":%.3f,\"games\":%d,"
+                        + "\"gamesPerSecond\":%.1f,\"averageTurns\":%.3f,\"xWins\":%d,\"oWins\":%d,\"stopped\":%d,",
+                System.currentTimeMillis(), (now - started) / 1e9, count, rate, getAverageTurns(),
+                xWins.sum(), oWins.sum(), stopped.sum()));
+        json.append("\"decisionMicros\":{");
+        appendLatency(json, "X", decisions[BitBoard.X]).append(',');
+        appendLatency(json, "O", decisions[BitBoard.O]).append("},");
+        json.append("\"gameMicros\":{");
+        appendLatency(json, "all", gameTimes).append("},");
+        json.append("\"qTableSize\":{");
+        boolean first = true;
+        for (Map.Entry<String, QValues> table : tables.entrySet()) {
+            if (!first)
+                json.append(',');
+            json.append('"').append(table.getKey()).append("\":").append(table.getValue().size());
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    private static StringBuilder appendLatency(StringBuilder json, String name, LatencyHistogram histogram) {
+        return json.append('"').append(name).append("\":{\"count\":").append(histogram.getCount())
+                .append(",\"p50\":").append(histogram.getPercentile(50) / 1000)
+                .append(",\"p99\":").append(histogram.getPercentile(99) / 1000)
+                .append(",\"max\":").append(histogram.getMax() / 1000).append('}');
+    }
+
+    /**
+     * @return a summary of the decision times and the throughput since the telemetry was created.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (int side = BitBoard.X; side <= BitBoard.O; side++) {
+            LatencyHistogram histogram = decisions[side];
+            report.append(side == BitBoard.X ? "X" : "O").append(" decision time p50 ")
+                    .append(histogram.getPercentile(50) / 1000).append("us p99 ")
+                    .append(histogram.getPercentile(99) / 1000).append("us max ")
+                    .append(histogram.getMax() / 1000).append("us\n");
+        }
+        double rate = games.sum() * 1e9 / (System.nanoTime() - started);
+        return report.append(String.format(Locale.ROOT, "%.1f games/second", rate)).toString();
+    }
+
+    public long getGames() {
+        return games.sum();
+    }
+
+    /**
+     * @return the average number of turns per game, including the stopped games.
+     */
+    public double getAverageTurns() {
+        long count = games.sum();
+        return count == 0 ? 0 : (double) turns.sum() / count;
+    }
+
+    /**
+     * @param side {@link BitBoard#X} or {@link BitBoard#O}.
+     * @return the histogram of the time the side took per move, in nanoseconds.
+     */
+    public LatencyHistogram getDecisionTimes(int side) {
+        return decisions[side];
+    }
+}
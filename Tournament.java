@@ -0,0 +1,434 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Headless runner that plays a batch of games between two agents without printing the boards,
+ * and reports the results and the throughput.
+ * <pre>
+ * java Tournament --x ql --o minmax:7 --games 100000 [--threads 8] [--no-learning] [--verbose] [--save]
+ *                 [--metrics json|csv] [--telemetry file [--period millis]] [--log file]
+ * </pre>
+ * Agents are given as "minmax[:limit]", "minmax-time:millis", "mcts[:millis[:threads]]",
+ * "ql[:exploration rate]", "policy"
+ * (the compiled greedy policy of the Q-table, see {@link PolicyTable}) or "solved".
+ * With --save the Q-tables of Q-learning agents are written at the end of the run.
+ * With --metrics the searches of the Min-Max agents are counted in a {@link SearchStats}, which is printed
+ * in the given format at the end of the run and can be watched from a JMX console while it runs.
+ * With --telemetry every move is timed by a {@link Telemetry}, which appends a snapshot to the file every
+ * --period milliseconds (1000 by default).
+ * With --log every game is appended to a {@link GameLog}, with the agents named as they were given.
+ * <p>
+ * With --threads the games are spread over a pool of worker threads. Every worker plays with its own
+ * pair of agents and its own {@link GameStats}, and the results are merged at the end. The agents only
+ * share read-only or thread-safe data: the mapped Q-table files and the Min-Max transposition table.
+ * Q-learning agents still learn on their own copy of the table unless --no-learning is given.
+ */
+public class Tournament {
+
+    // The pools of the "mcts:millis:threads" agents, one per size, shared by all the agents of the process
+    private static final Map<Integer, ForkJoinPool> mctsPools = new ConcurrentHashMap<>();
+
+    /**
+     * Entry point for the runner.
+     *
+     * @param args the run options.
+     */
+    public static void main(String[] args) {
+        String xSpec = "ql", oSpec = "minmax";
+        int games = 1000, threads = 1;
+        boolean verbose = false, save = false, learning = true;
+        String metrics = null, telemetryFile = null, logFile = null;
+        long period = 1000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--x":
+                    xSpec = args[++i];
+                    break;
+                case "--o":
+                    oSpec = args[++i];
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--no-learning":
+                    learning = false;
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                case "--save":
+                    save = true;
+                    break;
+                case "--metrics":
+                    metrics = args[++i];
+                    break;
+                case "--telemetry":
+                    telemetryFile = args[++i];
+                    break;
+                case "--period":
+                    period = Long.parseLong(args[++i]);
+                    break;
+                case "--log":
+                    logFile = args[++i];
+                    break;
+                default:
+                    System.out.println("unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        SearchStats searchStats = null;
+        if (metrics != null) {
+            searchStats = new SearchStats();
+            searchStats.register("Tournament");
+        }
+        Telemetry telemetry = null;
+        GameListener listener = GameListener.NONE;
+        if (telemetryFile != null) {
+            telemetry = new Telemetry();
+            telemetry.start(Paths.get(telemetryFile), period);
+            listener = telemetry;
+        }
+        GameLog log = null;
+        if (logFile != null) {
+            try {
+                log = new GameLog(Paths.get(logFile));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            listener = GameListener.both(listener, log.listener(xSpec, oSpec));
+        }
+
+        if (threads > 1) {
+            String x = xSpec, o = oSpec;
+            boolean learn = learning;
+            SearchStats shared = searchStats;
+            Telemetry watcher = telemetry;
+            long start = System.nanoTime();
+            // the agents are created on their worker thread, whose name tells the tables of the workers apart
+            GameStats stats = runParallel(
+                    () -> watched(measured(createAgent(x, 'X', learn), shared), watcher,
+                            "X@" + Thread.currentThread().getName()),
+                    () -> watched(measured(createAgent(o, 'O', learn), shared), watcher,
+                            "O@" + Thread.currentThread().getName()),
+                    games, threads, listener);
+            long wall = System.nanoTime() - start;
+            System.out.println(xSpec + " (X) against " + oSpec + " (O), " + stats.getGames() + " games on "
+                    + threads + " threads\n" + stats.report());
+            System.out.printf("%.1f games/second%n", stats.getGames() * 1e9 / wall);
+            if (save)
+                System.out.println("--save is ignored with several threads, every worker has its own Q-table");
+            printMetrics(searchStats, metrics);
+            printTelemetry(telemetry);
+            closeLog(log);
+            return;
+        }
+
+        Agent xPlayer = watched(measured(createAgent(xSpec, 'X', learning), searchStats), telemetry, "X");
+        Agent oPlayer = watched(measured(createAgent(oSpec, 'O', learning), searchStats), telemetry, "O");
+        GameStats stats = run(xPlayer, oPlayer, games, verbose, listener);
+
+        System.out.println(xSpec + " (X) against " + oSpec + " (O), " + stats.getGames() + " games\n" + stats.report());
+        System.out.printf("%.1f games/second%n", stats.getGamesPerSecond());
+        printMetrics(searchStats, metrics);
+        printTelemetry(telemetry);
+        closeLog(log);
+
+        if (save) {
+            if (xPlayer instanceof QLearningAgent)
+                ((QLearningAgent) xPlayer).writeData();
+            if (oPlayer instanceof QLearningAgent)
+                ((QLearningAgent) oPlayer).writeData();
+        }
+    }
+
+    private static Agent measured(Agent agent, SearchStats stats) {
+        if (stats != null && agent instanceof MinMaxAgent)
+            ((MinMaxAgent) agent).changeMetrics(stats);
+        return agent;
+    }
+
+    private static Agent watched(Agent agent, Telemetry telemetry, String name) {
+        if (telemetry != null && agent instanceof QLearningAgent)
+            telemetry.watch(name, ((QLearningAgent) agent).getQTable());
+        return agent;
+    }
+
+    private static void printTelemetry(Telemetry telemetry) {
+        if (telemetry == null)
+            return;
+        telemetry.close();
+        System.out.println(telemetry.report());
+    }
+
+    private static void closeLog(GameLog log) {
+        if (log == null)
+            return;
+        try {
+            log.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void printMetrics(SearchStats stats, String format) {
+        if (stats == null)
+            return;
+        if (format.equals("csv"))
+            System.out.println(SearchStats.csvHeader() + "\n" + stats.toCsv());
+        else
+            System.out.println(stats.toJson());
+    }
+
+    /**
+     * Plays a batch of games.
+     *
+     * @param xPlayer the agent playing as X.
+     * @param oPlayer the agent playing as O.
+     * @param games the number of games.
+     * @param verbose true to print the boards.
+     * @return the results of the run.
+     */
+    public static GameStats run(Agent xPlayer, Agent oPlayer, int games, boolean verbose) {
+        return run(xPlayer, oPlayer, games, verbose, GameListener.NONE);
+    }
+
+    /**
+     * Plays a batch of games and reports them to a listener.
+     *
+     * @param xPlayer the agent playing as X.
+     * @param oPlayer the agent playing as O.
+     * @param games the number of games.
+     * @param verbose true to print the boards.
+     * @param listener the listener to report to, or {@link GameListener#NONE}.
+     * @return the results of the run.
+     */
+    public static GameStats run(Agent xPlayer, Agent oPlayer, int games, boolean verbose, GameListener listener) {
+        GameStats stats = new GameStats();
+        for (int i = 0; i < games; i++)
+            Game.game(xPlayer, oPlayer, stats, verbose, listener);
+        return stats;
+    }
+
+    /**
+     * Plays a batch of games on several threads. Every thread creates its own agents, so agents never
+     * have to be thread-safe.
+     *
+     * @param xFactory creates the agents playing as X.
+     * @param oFactory creates the agents playing as O.
+     * @param games the number of games.
+     * @param threads the number of worker threads.
+     * @return the merged results of all the workers.
+     */
+    public static GameStats runParallel(Supplier<Agent> xFactory, Supplier<Agent> oFactory, int games, int threads) {
+        return runParallel(xFactory, oFactory, games, threads, GameListener.NONE);
+    }
+
+    /**
+     * Plays a batch of games on several threads and reports them to a listener.
+     *
+     * @param xFactory creates the agents playing as X.
+     * @param oFactory creates the agents playing as O.
+     * @param games the number of games.
+     * @param threads the number of worker threads.
+     * @param listener the listener to report to, shared by all the threads, or {@link GameListener#NONE}.
+     * @return the merged results of all the workers.
+     */
+    public static GameStats runParallel(Supplier<Agent> xFactory, Supplier<Agent> oFactory, int games, int threads,
+                                        GameListener listener) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger remaining = new AtomicInteger(games);
+        List<Future<GameStats>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(() -> {
+                Agent xPlayer = xFactory.get();
+                Agent oPlayer = oFactory.get();
+                GameStats stats = new GameStats();
+                while (remaining.getAndDecrement() > 0)
+                    Game.game(xPlayer, oPlayer, stats, false, listener);
+                return stats;
+            }));
+        }
+
+        GameStats total = new GameStats();
+        try {
+            for (Future<GameStats> worker : workers)
+                total.merge(worker.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return total;
+    }
+
+    /**
+     * Creates an agent from its description.
+     *
+     * @param spec the agent type with an optional parameter, for example "minmax:5".
+     * @param player the character representing the player ('X' or 'O').
+     * @param learning false to keep Q-learning agents from updating their Q-table.
+     * @return the new agent.
+     * @throws IllegalArgumentException if the description is not valid, see {@link #checkAgent(String)}.
+     */
+    public static Agent createAgent(String spec, char player, boolean learning) {
+        return createAgent(checkAgent(spec), player, learning);
+    }
+
+    /**
+     * Creates an agent from its checked description.
+     *
+     * @param spec the description returned by {@link #checkAgent(String)}.
+     * @param player the character representing the player ('X' or 'O').
+     * @param learning false to keep Q-learning agents from updating their Q-table.
+     * @return the new agent.
+     */
+    public static Agent createAgent(AgentSpec spec, char player, boolean learning) {
+        switch (spec.type) {
+            case "minmax": {
+                MinMaxAgent agent = new MinMaxAgent(player);
+                agent.changeLimit((int) spec.number);
+                return agent;
+            }
+            case "minmax-time": {
+                MinMaxAgent agent = new MinMaxAgent(player);
+                agent.changeTimeBudget(spec.number);
+                return agent;
+            }
+            case "ql": {
+                QLearningAgent agent = new QLearningAgent(player);
+                agent.changeRandom(spec.rate);
+                agent.changeLearning(learning);
+                return agent;
+            }
+            case "solved":
+                return new SolvedAgent();
+            case "mcts": {
+                MctsAgent agent = new MctsAgent();
+                agent.changeTimeBudget(spec.number);
+                if (spec.threads > 1)
+                    agent.changePool(mctsPools.computeIfAbsent(spec.threads, ForkJoinPool::new));
+                return agent;
+            }
+            default: // "policy", checkAgent() knows no other type
+                return new PolicyAgent(player);
+        }
+    }
+
+    /**
+     * Parses and checks the description of an agent without creating it, which can take long for the agents
+     * that load a table. The parameters that are left out get the defaults of the agents.
+     *
+     * @param spec the agent type with an optional parameter, as for {@link #createAgent(String, char, boolean)}.
+     * @return the parsed description.
+     * @throws IllegalArgumentException if the type is unknown, or a parameter is missing, extra, not a number
+     *         or out of range: the limit of "minmax" goes from 1 to 10, the exploration rate of "ql" from 0 to 1,
+     *         the budgets are not negative and "mcts" has at least one thread.
+     */
+    public static AgentSpec checkAgent(String spec) {
+        String[] parts = spec.split(":", -1);
+        String type = parts[0];
+        int parameters = type.equals("mcts") ? 2 : type.equals("solved") || type.equals("policy") ? 0 : 1;
+        if (!type.matches("minmax|minmax-time|ql|solved|mcts|policy"))
+            throw new IllegalArgumentException("unknown agent " + spec);
+        if (parts.length - 1 > parameters)
+            throw new IllegalArgumentException("too many parameters for " + type + " in " + spec);
+        try {
+            switch (type) {
+                case "minmax": {
+                    int limit = parts.length > 1 ? Integer.parseInt(parts[1]) : 7;
+                    if (limit < 1 || limit > 10)
+                        throw new IllegalArgumentException("limit " + limit + " out of 1..10 in " + spec);
+                    return new AgentSpec(type, limit, 0, 1);
+                }
+                case "minmax-time":
+                    return new AgentSpec(type, parts.length > 1 ? checkMillis(parts[1], spec) : 100, 0, 1);
+                case "ql": {
+                    double rate = parts.length > 1 ? Double.parseDouble(parts[1]) : 0;
+                    if (!(rate >= 0 && rate <= 1))
+                        throw new IllegalArgumentException("exploration rate " + rate + " out of 0..1 in " + spec);
+                    return new AgentSpec(type, 0, rate, 1);
+                }
+                case "mcts": {
+                    long millis = parts.length > 1 ? checkMillis(parts[1], spec) : 100;
+                    int threads = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+                    if (threads < 1)
+                        throw new IllegalArgumentException("threads " + threads + " under 1 in " + spec);
+                    return new AgentSpec(type, millis, 0, threads);
+                }
+                default:
+                    return new AgentSpec(type, 0, 0, 1);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad number in " + spec, e);
+        }
+    }
+
+    private static long checkMillis(String parameter, String spec) {
+        long millis = Long.parseLong(parameter);
+        if (millis < 0)
+            throw new IllegalArgumentException("negative budget " + millis + " in " + spec);
+        return millis;
+    }
+
+    /**
+     * The checked description of an agent: its type and its parameters, with the defaults filled in.
+     */
+    public static class AgentSpec {
+        final String type;
+        final long number; // The limit of "minmax", the budget in milliseconds of "minmax-time" and "mcts"
+        final double rate; // The exploration rate of "ql"
+        final int threads; // The threads of "mcts"
+
+        private AgentSpec(String type, long number, double rate, int threads) {
+            this.type = type;
+            this.number = number;
+            this.rate = rate;
+            this.threads = threads;
+        }
+
+        /**
+         * Bounds the work of a move, for agents chosen by someone else.
+         *
+         * @param maxMillis the largest budget per move.
+         * @param maxThreads the largest number of threads.
+         * @return the description with its budget and threads cut down to the bounds.
+         */
+        public AgentSpec capped(long maxMillis, int maxThreads) {
+            if (!type.equals("minmax-time") && !type.equals("mcts"))
+                return this;
+            return new AgentSpec(type, Math.min(number, maxMillis), rate, Math.min(threads, maxThreads));
+        }
+
+        /**
+         * @return the description with all its parameters, which is the same for all the equal agents and
+         *         can be given to {@link #checkAgent(String)} again.
+         */
+        @Override
+        public String toString() {
+            switch (type) {
+                case "minmax":
+                case "minmax-time":
+                    return type + ":" + number;
+                case "ql":
+                    return type + ":" + rate;
+                case "mcts":
+                    return type + ":" + number + ":" + threads;
+                default:
+                    return type;
+            }
+        }
+    }
+}
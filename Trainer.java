@@ -0,0 +1,295 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Trains a Q-learning agent on several threads at once.
+ * <pre>
+ * java Trainer [--player X] [--opponent minmax:7] [--games 100000] [--threads 8] [--mode striped]
+ *              [--sync 1000] [--exploration 0.1] [--capacity 1048576] [--replay 65536 [--batch 32] [--prioritized]]
+ *              [--fresh] [--save]
+ * </pre>
+ * Every worker thread plays its own games against its own opponent (given as in {@link Tournament}),
+ * and the Q-learning agents of all the workers learn into one table. The mode chooses how that table is
+ * shared:
+ * <ul>
+ * <li>striped: a {@link StripedQTable}, the updates of a state are serialized by the lock of its stripe.</li>
+ * <li>hogwild: a {@link HogwildQTable}, the updates are lock-free compare-and-set loops.
+ * --capacity is the most states it can hold.</li>
+ * <li>merge: every worker learns on a private copy of the table. Every --sync games the workers wait for
+ * each other, and the changes they made since the last merge are averaged into the shared table, which is
+ * then copied back to every worker. A state changed by only some of the workers gets the average of their
+ * changes, not diluted by the workers that didn't visit it.</li>
+ * </ul>
+ * With --replay every learning agent keeps a {@link ReplayBuffer} of its latest transitions and replays a
+ * batch of them every --batch moves, sampled by TD error with --prioritized.
+ * <p>
+ * Training starts from the DB of the player unless --fresh is given, and --save writes the result to
+ * its binary DB ("DBForX.bin" or "DBForO.bin").
+ */
+public class Trainer {
+
+    /**
+     * Entry point for the trainer.
+     *
+     * @param args the training options.
+     */
+    public static void main(String[] args) {
+        char player = 'X';
+        String opponent = "minmax";
+        String mode = "striped";
+        int games = 100000, threads = Runtime.getRuntime().availableProcessors(), sync = 1000;
+        int capacity = 1 << 20, replay = 0, batch = 32;
+        double exploration = 0.1;
+        boolean fresh = false, save = false, prioritized = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--player":
+                    player = Character.toUpperCase(args[++i].charAt(0));
+                    break;
+                case "--opponent":
+                    opponent = args[++i];
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--mode":
+                    mode = args[++i];
+                    break;
+                case "--sync":
+                    sync = Integer.parseInt(args[++i]);
+                    break;
+                case "--exploration":
+                    exploration = Double.parseDouble(args[++i]);
+                    break;
+                case "--capacity":
+                    capacity = Integer.parseInt(args[++i]);
+                    break;
+                case "--replay":
+                    replay = Integer.parseInt(args[++i]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                case "--prioritized":
+                    prioritized = true;
+                    break;
+                case "--fresh":
+                    fresh = true;
+                    break;
+                case "--save":
+                    save = true;
+                    break;
+                default:
+                    System.out.println("unknown option " + args[i]);
+                    return;
+            }
+        }
+        if (player != 'X' && player != 'O') {
+            System.out.println("the player must be X or O");
+            return;
+        }
+        if (player == 'O' && opponent.startsWith("ql")) {
+            // the game only updates the Q-table of X when both players are Q-learning agents
+            System.out.println("an O learner can't train against a Q-learning opponent");
+            return;
+        }
+
+        char learner = player;
+        double rate = exploration;
+        int replayCapacity = replay, replayBatch = batch;
+        boolean replayPrioritized = prioritized;
+        Function<QValues, QLearningAgent> learners = shared -> {
+            QLearningAgent agent = new QLearningAgent(learner, shared);
+            agent.changeRandom(rate);
+            if (replayCapacity > 0)
+                agent.changeReplay(new ReplayBuffer(replayCapacity, replayPrioritized), replayBatch);
+            return agent;
+        };
+
+        QTable start = fresh ? new QTable() : QLearningAgent.loadTable(player);
+        long begin = System.nanoTime();
+        GameStats stats;
+        QValues table;
+        switch (mode) {
+            case "striped":
+                table = new StripedQTable(threads * 16);
+                start.forEach(table::put);
+                stats = trainShared(table, player, learners, opponent, games, threads);
+                break;
+            case "hogwild":
+                table = new HogwildQTable(Math.max(capacity, start.size() * 2));
+                start.forEach(table::put);
+                stats = trainShared(table, player, learners, opponent, games, threads);
+                break;
+            case "merge":
+                QTable merged = start.copy();
+                stats = trainMerged(merged, player, learners, opponent, games, threads, sync);
+                table = merged;
+                break;
+            default:
+                System.out.println("unknown mode " + mode);
+                return;
+        }
+        long wall = System.nanoTime() - begin;
+
+        System.out.println(player + " trained against " + opponent + " in " + mode + " mode, " + stats.getGames()
+                + " games on " + threads + " threads\n" + stats.report());
+        System.out.printf("%.1f games/second, %d states in the Q-table%n", stats.getGames() * 1e9 / wall, table.size());
+
+        if (save) {
+            try {
+                QTableFile.write(table, Paths.get(QLearningAgent.dbPath(player) + ".bin"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Trains agents that all learn into the same thread-safe table.
+     *
+     * @param table the shared table, a {@link StripedQTable} or a {@link HogwildQTable}.
+     * @param player the character of the learning player ('X' or 'O').
+     * @param learners creates the learning agents on top of a table.
+     * @param opponent the description of the opponent, see {@link Tournament#createAgent(String, char, boolean)}.
+     * @param games the number of games.
+     * @param threads the number of worker threads.
+     * @return the merged results of all the workers.
+     */
+    public static GameStats trainShared(QValues table, char player, Function<QValues, QLearningAgent> learners,
+                                        String opponent, int games, int threads) {
+        char other = player == 'X' ? 'O' : 'X';
+        return Tournament.runParallel(
+                () -> player == 'X' ? learners.apply(table) : Tournament.createAgent(opponent, other, false),
+                () -> player == 'O' ? learners.apply(table) : Tournament.createAgent(opponent, other, false),
+                games, threads);
+    }
+
+    /**
+     * Trains agents on private copies of a table and merges their changes every {@code sync} games.
+     * At a merge, every state is set to its value at the last merge plus the average of the changes
+     * the workers made to it since then.
+     *
+     * @param table the table to start from, which holds the merged result at the end.
+     * @param player the character of the learning player ('X' or 'O').
+     * @param learners creates the learning agents on top of a table.
+     * @param opponent the description of the opponent, see {@link Tournament#createAgent(String, char, boolean)}.
+     * @param games the number of games.
+     * @param threads the number of worker threads.
+     * @param sync the number of games every worker plays between two merges.
+     * @return the merged results of all the workers.
+     */
+    public static GameStats trainMerged(QTable table, char player, Function<QValues, QLearningAgent> learners,
+                                        String opponent, int games, int threads, int sync) {
+        char other = player == 'X' ? 'O' : 'X';
+        Copy[] copies = new Copy[threads];
+        for (int i = 0; i < threads; i++)
+            copies[i] = new Copy(table);
+
+        int share = games / threads;
+        int rounds = (share + (games % threads == 0 ? 0 : 1) + sync - 1) / sync;
+        CyclicBarrier barrier = new CyclicBarrier(threads, () -> merge(table, copies));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<GameStats>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Copy copy = copies[i];
+            int left = share + (i < games % threads ? 1 : 0);
+            workers.add(pool.submit(() -> {
+                Agent learner = learners.apply(copy);
+                Agent rival = Tournament.createAgent(opponent, other, false);
+                Agent xPlayer = player == 'X' ? learner : rival;
+                Agent oPlayer = player == 'X' ? rival : learner;
+                GameStats stats = new GameStats();
+                int remaining = left;
+                for (int round = 0; round < rounds; round++) {
+                    for (int game = Math.min(sync, remaining); game > 0; game--, remaining--)
+                        Game.game(xPlayer, oPlayer, stats, false);
+                    barrier.await();
+                }
+                return stats;
+            }));
+        }
+
+        GameStats total = new GameStats();
+        try {
+            for (Future<GameStats> worker : workers)
+                total.merge(worker.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return total;
+    }
+
+    /**
+     * Averages the changes of the worker tables into the shared table and copies the result back.
+     * Only the states changed since the last merge are visited, and each one gets the average change of
+     * the workers that changed it. In merge mode it runs on the last worker to reach the barrier, while
+     * all the others wait.
+     */
+    static void merge(QTable table, Copy[] copies) {
+        QTable sums = new QTable();
+        QTable counts = new QTable();
+        for (Copy copy : copies) {
+            copy.changed.forEach((key, ignored) -> {
+                sums.put(key, sums.get(key, 0.0) + copy.table.get(key, 0.0) - table.get(key, 0.0));
+                counts.put(key, counts.get(key, 0.0) + 1);
+            });
+        }
+        sums.forEach((key, delta) -> {
+            double value = table.get(key, 0.0) + delta / counts.get(key, 1.0);
+            table.put(key, value);
+            for (Copy copy : copies)
+                copy.table.put(key, value);
+        });
+        for (Copy copy : copies)
+            copy.changed = new QTable();
+    }
+
+    /**
+     * The private copy of the shared table of a worker in merge mode, which remembers the states its
+     * worker changed since the last merge. Only used by one thread between merges.
+     */
+    static class Copy implements QValues {
+        private final QTable table;
+        private QTable changed = new QTable(); // The keys changed since the last merge, values unused
+
+        /**
+         * @param shared the table to copy.
+         */
+        Copy(QTable shared) {
+            table = shared.copy();
+        }
+
+        @Override
+        public double get(long key, double defaultValue) {
+            return table.get(key, defaultValue);
+        }
+
+        @Override
+        public void put(long key, double value) {
+            table.put(key, value);
+            changed.put(key, 0.0);
+        }
+
+        @Override
+        public int size() {
+            return table.size();
+        }
+
+        @Override
+        public void forEach(QTable.Visitor visitor) {
+            table.forEach(visitor);
+        }
+    }
+}
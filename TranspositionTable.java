@@ -0,0 +1,133 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for the search agents.
+ * Keys are normalized states (see {@link BitBoard#key(long)}) and every entry packs the score,
+ * the remaining depth it was searched to, the bound type and the best move into one {@code long}.
+ * <p>
+ * The table is organised in buckets of two entries: the first keeps the deepest result seen
+ * for its slot and the second is always replaced, so deep results survive without the table
+ * filling up with stale entries.
+ * <p>
+ * The table can be shared by searches running on several threads without locking. Each slot stores
+ * its key XOR-ed with its entry, so a slot that is read while another thread rewrites it doesn't
+ * match its key and is treated as a miss.
+ */
+public class TranspositionTable {
+
+    public static final int EXACT = 0; // The score is the exact minimax value
+    public static final int LOWER = 1; // The score is a lower bound (fail high)
+    public static final int UPPER = 2; // The score is an upper bound (fail low)
+
+    /**
+     * Returned by {@link #probe(long, int)} when the key is not in the table.
+     */
+    public static final long MISS = 0;
+
+    private static final long USED = 1L << 63;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * Constructs a table with {@code 2^bits} buckets.
+     *
+     * @param bits the log2 of the number of buckets.
+     */
+    public TranspositionTable(int bits) {
+        keys = new long[2 << bits];
+        data = new long[2 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Looks up a state in the table.
+     * If the state is stored for several depths the entry searched to {@code depth} is preferred.
+     *
+     * @param key the normalized state.
+     * @param depth the remaining depth of the search.
+     * @return the packed entry, or {@link #MISS}.
+     */
+    public long probe(long key, int depth) {
+        int index = index(key);
+        long first = data[index], second = data[index + 1];
+        if ((keys[index] ^ first) != key)
+            first = MISS;
+        if ((keys[index + 1] ^ second) != key)
+            second = MISS;
+        if (first != MISS && (depth(first) == depth || second == MISS))
+            return first;
+        return second;
+    }
+
+    /**
+     * Stores a search result.
+     *
+     * @param key the normalized state.
+     * @param depth the remaining depth of the search.
+     * @param score the score of the state.
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     * @param move the cell of the best move, or {@link BitBoard#NONE} ({@link Variant#NONE} on the
+     *             boards of a {@link Variant}).
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        int index = index(key);
+        long entry = USED | (long) (move & 0xFF) << 40 | (long) bound << 36 | (long) (depth & 0xFF) << 28
+                | (score & 0xFFFF);
+        long old = data[index];
+        if (old == MISS || (keys[index] ^ old) == key && depth >= depth(old) || depth > depth(old)) {
+            keys[index] = key ^ entry;
+            data[index] = entry;
+        }
+        else {
+            keys[index + 1] = key ^ entry;
+            data[index + 1] = entry;
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, MISS);
+    }
+
+    /**
+     * @param entry a packed entry.
+     * @return the stored score.
+     */
+    public static int score(long entry) {
+        return (short) entry;
+    }
+
+    /**
+     * @param entry a packed entry.
+     * @return the remaining depth the entry was searched to.
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 28) & 0xFF;
+    }
+
+    /**
+     * @param entry a packed entry.
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 36) & 0x3;
+    }
+
+    /**
+     * @param entry a packed entry.
+     * @return the cell of the best move, or {@link BitBoard#NONE}.
+     */
+    public static int move(long entry) {
+        return (int) (entry >>> 40) & 0xFF;
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return ((int) (h >>> 32) & mask) << 1;
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.Arrays;
+
+/**
+ * The rules of a variant of the game: the size of the square board, the number of pieces in a row that
+ * wins, and the window, the number of pieces that stay on the board. When a piece is placed, the piece
+ * placed {@code window} turns earlier disappears; since the window is even it belongs to the same player.
+ * A window of 0 keeps every piece, as in the usual k-in-a-row games.
+ * <p>
+ * The winning lines are computed once as cell masks, with the lines through every cell, so checking the
+ * move that was just played only tests the few lines it can complete. Boards have up to 64 cells, which
+ * keeps the cells of one side in a single {@code long} (see {@link Position}).
+ * <p>
+ * {@link #CLASSIC} is the game of {@link BitBoard}: 3x3, 3 in a row, 6 pieces.
+ */
+public final class Variant {
+
+    public static final int MAX_SIZE = 8; // 64 cells fit in a long
+    public static final int NONE = 0xFF; // Marks a missing cell
+
+    public static final Variant CLASSIC = new Variant(3, 3, 6);
+
+    private final int size;
+    private final int winLength;
+    private final int window;
+    private final int cells;
+    private final long full;
+    private final long[] lines;
+    private final long[][] linesThrough; // The lines that contain each cell
+
+    /**
+     * Constructs a variant.
+     *
+     * @param size the number of rows and columns, between 1 and {@link #MAX_SIZE}.
+     * @param winLength the number of pieces in a row that wins, between 1 and {@code size}.
+     * @param window the number of pieces that stay on the board, an even number, or 0 to keep them all.
+     * @throws IllegalArgumentException if a parameter is out of range.
+     */
+    public Variant(int size, int winLength, int window) {
+        if (size < 1 || size > MAX_SIZE)
+            throw new IllegalArgumentException("the size must be between 1 and " + MAX_SIZE);
+        if (winLength < 1 || winLength > size)
+            throw new IllegalArgumentException("the win length must be between 1 and the size");
+        if (window < 0 || window % 2 != 0)
+            throw new IllegalArgumentException("the window must be an even number or 0");
+        this.size = size;
+        this.winLength = winLength;
+        this.window = window;
+        cells = size * size;
+        full = cells == 64 ? -1L : (1L << cells) - 1;
+
+        // every segment of winLength cells along a row, a column or a diagonal
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        long[] found = new long[4 * cells];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                for (int[] direction : directions) {
+                    int lastRow = row + direction[0] * (winLength - 1);
+                    int lastCol = col + direction[1] * (winLength - 1);
+                    if (lastRow >= size || lastCol < 0 || lastCol >= size)
+                        continue;
+                    long line = 0;
+                    for (int i = 0; i < winLength; i++)
+                        line |= 1L << cell(row + direction[0] * i, col + direction[1] * i);
+                    if (winLength > 1 || direction == directions[0])
+                        found[count++] = line;
+                }
+            }
+        }
+        lines = Arrays.copyOf(found, count);
+        linesThrough = new long[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            int through = 0;
+            for (long line : lines)
+                if ((line >>> cell & 1) != 0)
+                    through++;
+            linesThrough[cell] = new long[through];
+            through = 0;
+            for (long line : lines)
+                if ((line >>> cell & 1) != 0)
+                    linesThrough[cell][through++] = line;
+        }
+    }
+
+    /**
+     * Reads a variant written as "size:winLength:window", for example "5:4:8".
+     *
+     * @param spec the variant.
+     * @return the variant.
+     * @throws IllegalArgumentException if the text is not a valid variant.
+     */
+    public static Variant parse(String spec) {
+        String[] parts = spec.split(":");
+        if (parts.length != 3)
+            throw new IllegalArgumentException("a variant is written as size:winLength:window, not " + spec);
+        return new Variant(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+    }
+
+    /**
+     * Checks if the given cells contain a full line.
+     *
+     * @param mask a mask of cells taken by one side.
+     * @return true if the mask contains a winning line, false otherwise.
+     */
+    public boolean hasLine(long mask) {
+        for (long line : lines) {
+            if ((mask & line) == line)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the given cells contain a full line through a cell, which is faster than
+     * {@link #hasLine(long)} when only the lines of the last move can be new.
+     *
+     * @param mask a mask of cells taken by one side.
+     * @param cell the cell the line has to go through.
+     * @return true if the mask contains a winning line through the cell, false otherwise.
+     */
+    public boolean hasLineThrough(long mask, int cell) {
+        for (long line : linesThrough[cell]) {
+            if ((mask & line) == line)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the cell index.
+     */
+    public int cell(int row, int col) {
+        return row * size + col;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getCells() {
+        return cells;
+    }
+
+    /**
+     * @return the mask of all the cells of the board.
+     */
+    public long getFull() {
+        return full;
+    }
+
+    /**
+     * @return the winning lines as cell masks. The array is shared and must not be changed.
+     */
+    public long[] getLines() {
+        return lines;
+    }
+
+    /**
+     * @param cell a cell of the board.
+     * @return the winning lines that contain the cell. The array is shared and must not be changed.
+     */
+    public long[] getLinesThrough(int cell) {
+        return linesThrough[cell];
+    }
+
+    @Override
+    public String toString() {
+        return size + ":" + winLength + ":" + window;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * Abstract class representing an agent that plays any {@link Variant} of the game.
+ */
+public abstract class VariantAgent {
+    /**
+     * Determines the next move of the agent.
+     *
+     * @param position the current state of the game. It is the same when the method returns.
+     * @return the cell index of the move.
+     */
+    public abstract int getPlayCell(Position position);
+}
@@ -0,0 +1,165 @@
+import java.util.Random;
+
+/**
+ * Headless runner for the variants of the game, in the manner of {@link Tournament}.
+ * <pre>
+ * java VariantGame --variant 5:4:8 --x minmax:3 --o ql --games 100 [--verbose]
+ * </pre>
+ * A variant is given as "size:winLength:window" (see {@link Variant#parse(String)}), and the agents as
+ * "minmax[:limit]", "minmax-time:millis", "ql[:exploration rate]" or "random". Q-learning agents start with
+ * an empty Q-table and learn during the run. Games are stopped after {@link Game#MAX_TURNS} turns, or when
+ * the board is full if pieces never disappear.
+ */
+public class VariantGame {
+
+    /**
+     * Entry point for the runner.
+     *
+     * @param args the run options.
+     */
+    public static void main(String[] args) {
+        Variant variant = new Variant(4, 3, 6);
+        String xSpec = "ql", oSpec = "minmax";
+        int games = 100;
+        boolean verbose = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--variant":
+                    variant = Variant.parse(args[++i]);
+                    break;
+                case "--x":
+                    xSpec = args[++i];
+                    break;
+                case "--o":
+                    oSpec = args[++i];
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                default:
+                    System.out.println("unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        VariantAgent xPlayer = createAgent(xSpec, variant), oPlayer = createAgent(oSpec, variant);
+        GameStats stats = new GameStats();
+        for (int i = 0; i < games; i++)
+            game(variant, xPlayer, oPlayer, stats, verbose);
+        System.out.println(xSpec + " (X) against " + oSpec + " (O) on " + variant + ", " + stats.getGames()
+                + " games\n" + stats.report());
+        System.out.printf("%.1f games/second%n", stats.getGamesPerSecond());
+    }
+
+    /**
+     * Simulates a single game between two agents.
+     *
+     * @param variant the rules of the game.
+     * @param xPlayer the agent playing as X.
+     * @param oPlayer the agent playing as O.
+     * @param stats the run statistics to record the result in.
+     * @param verbose true to print the board after every move.
+     * @return {@link BitBoard#X}, {@link BitBoard#O} or {@link BitBoard#NO_WINNER} if the board was full or
+     *         the game was stopped.
+     */
+    static int game(Variant variant, VariantAgent xPlayer, VariantAgent oPlayer, GameStats stats, boolean verbose) {
+        long start = System.nanoTime();
+        Position position = new Position(variant);
+        int winner = BitBoard.NO_WINNER;
+        while (winner == BitBoard.NO_WINNER && position.turn() < Game.MAX_TURNS && position.emptyCells() != 0) {
+            VariantAgent player = position.sideToMove() == BitBoard.X ? xPlayer : oPlayer;
+            long key = position.key();
+            position.make(player.getPlayCell(position));
+            winner = position.winner();
+            learn(xPlayer, BitBoard.X, key, winner, position.key());
+            if (oPlayer != xPlayer)
+                learn(oPlayer, BitBoard.O, key, winner, position.key());
+            if (verbose)
+                System.out.println(position);
+        }
+
+        if (winner == BitBoard.X)
+            stats.xWon(position.turn());
+        else if (winner == BitBoard.O)
+            stats.oWon(position.turn());
+        else if (position.emptyCells() == 0)
+            stats.drawn();
+        else
+            stats.stopped();
+        stats.addTime(System.nanoTime() - start);
+        if (verbose) {
+            if (winner != BitBoard.NO_WINNER)
+                System.out.println((winner == BitBoard.X ? "X" : "O") + " WON THE GAME AFTER " + position.turn() + " TURNS");
+            else if (position.emptyCells() == 0)
+                System.out.println("THE BOARD IS FULL, A DRAW AFTER " + position.turn() + " TURNS");
+            else
+                System.out.println("THE GAME WAS STOPPED AFTER " + position.turn() + " TURNS");
+        }
+        return winner;
+    }
+
+    /**
+     * Updates a Q-learning agent with a move of either side, rewarded as in {@link Game}
+     * from the side of the agent.
+     */
+    private static void learn(VariantAgent agent, int side, long key, int winner, long nextKey) {
+        if (!(agent instanceof VariantQLearningAgent))
+            return;
+        int reward = winner == BitBoard.NO_WINNER ? -1 : winner == side ? 1000 : -1000;
+        ((VariantQLearningAgent) agent).updateQTable(key, reward, nextKey);
+    }
+
+    /**
+     * Creates an agent from its description.
+     *
+     * @param spec the agent type with an optional parameter, for example "minmax:3".
+     * @param variant the rules of the game.
+     * @return the new agent.
+     * @throws IllegalArgumentException if the type is unknown.
+     */
+    public static VariantAgent createAgent(String spec, Variant variant) {
+        String[] parts = spec.split(":", 2);
+        String parameter = parts.length > 1 ? parts[1] : null;
+        switch (parts[0]) {
+            case "minmax": {
+                VariantMinMaxAgent agent = new VariantMinMaxAgent(variant);
+                if (parameter != null)
+                    agent.changeLimit(Integer.parseInt(parameter));
+                return agent;
+            }
+            case "minmax-time": {
+                VariantMinMaxAgent agent = new VariantMinMaxAgent(variant);
+                agent.changeTimeBudget(parameter != null ? Long.parseLong(parameter) : 100);
+                return agent;
+            }
+            case "ql": {
+                VariantQLearningAgent agent = new VariantQLearningAgent();
+                if (parameter != null)
+                    agent.changeRandom(Double.parseDouble(parameter));
+                return agent;
+            }
+            case "random":
+                return new RandomAgent();
+            default:
+                throw new IllegalArgumentException("unknown agent " + spec);
+        }
+    }
+
+    /**
+     * Plays a random free cell.
+     */
+    private static class RandomAgent extends VariantAgent {
+        private final Random random = new Random();
+
+        @Override
+        public int getPlayCell(Position position) {
+            long empty = position.emptyCells();
+            for (int skip = random.nextInt(Long.bitCount(empty)); skip > 0; skip--)
+                empty &= empty - 1;
+            return Long.numberOfTrailingZeros(empty);
+        }
+    }
+}
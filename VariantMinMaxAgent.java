@@ -0,0 +1,283 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The VariantMinMaxAgent class represents an AI player for any {@link Variant} of the game that uses the
+ * Minimax algorithm with alpha-beta pruning, in the same way as {@link MinMaxAgent} does on the 3x3 board.
+ * <p>
+ * Larger boards can't be searched to the end, so positions at the depth limit are scored by the lines that are
+ * still open: every line that holds pieces of only one side counts for that side, more the more pieces it
+ * holds. The search makes and unmakes moves on a single {@link Position}, tries the most promising moves
+ * first (the transposition table move, winning moves, blocking moves, then cells near the center) and keeps
+ * its results in a transposition table of its own.
+ */
+public class VariantMinMaxAgent extends VariantAgent {
+
+    private static final int WIN = 10000; // Larger than any evaluation
+    private static final int INFINITY = 30000; // Larger than any score
+    private static final int MAX_PLY = 64;
+    private static final int MAX_DEPTH = MAX_PLY - 2; // Deepest iteration of a time bounded search
+    private static final TimeUp TIME_UP = new TimeUp();
+
+    private final Variant variant;
+    private final TranspositionTable table = new TranspositionTable(16);
+    private final int[] centerOrder; // The cells sorted by their distance to the center
+    private final int[][] moves;
+    private final int[][] scores;
+    private final int[] weights; // The score of an open line by the number of pieces in it
+    private int limit = 4;
+    private long timeBudget = 0; // Milliseconds per move, 0 searches to the fixed limit
+    private long deadline = 0;
+    private long nodes = 0;
+
+    /**
+     * Constructs a VariantMinMaxAgent.
+     *
+     * @param variant the rules of the game.
+     */
+    public VariantMinMaxAgent(Variant variant) {
+        this.variant = variant;
+        int cells = variant.getCells();
+        moves = new int[MAX_PLY][cells];
+        scores = new int[MAX_PLY][cells];
+        weights = new int[variant.getWinLength() + 1];
+        for (int pieces = 1; pieces < weights.length; pieces++)
+            weights[pieces] = 1 << Math.min(2 * (pieces - 1), 12);
+
+        double center = (variant.getSize() - 1) / 2.0;
+        Integer[] order = new Integer[cells];
+        for (int cell = 0; cell < cells; cell++)
+            order[cell] = cell;
+        Arrays.sort(order, Comparator.comparingDouble(cell -> {
+            double row = cell / variant.getSize() - center, col = cell % variant.getSize() - center;
+            return row * row + col * col;
+        }));
+        centerOrder = new int[cells];
+        for (int i = 0; i < cells; i++)
+            centerOrder[i] = order[i];
+    }
+
+    /**
+     * Determines the best move for the side to move.
+     *
+     * @param position the current state of the game.
+     * @return the cell index of the best move.
+     */
+    @Override
+    public int getPlayCell(Position position) {
+        // a search that runs out of time unwinds without its unmakes, so it works on a copy
+        Position board = position.copy();
+        boolean isXTurn = board.sideToMove() == BitBoard.X;
+        if (timeBudget == 0)
+            return root(board, isXTurn, limit);
+
+        long start = System.nanoTime();
+        int bestCell = root(board, isXTurn, 1);
+        deadline = start + timeBudget * 1_000_000;
+        try {
+            for (int depth = 2; depth <= MAX_DEPTH && System.nanoTime() < deadline; depth++) {
+                bestCell = root(board, isXTurn, depth);
+            }
+        } catch (TimeUp e) {
+            // the unfinished iteration is dropped
+        } finally {
+            deadline = 0;
+        }
+        return bestCell;
+    }
+
+    /**
+     * Searches every move of the root. The first of the best moves in the search order is chosen.
+     */
+    private int root(Position board, boolean isXTurn, int limit) {
+        int[] moves = this.moves[0];
+        int count = orderMoves(board, ttMove(board.key(), limit), 0);
+        int bestScore = isXTurn ? -INFINITY : INFINITY;
+        int bestCell = moves[0];
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            board.make(cell);
+            int score = isXTurn
+                    ? alphaBeta(board, false, limit - 1, bestScore, INFINITY, 1)
+                    : alphaBeta(board, true, limit - 1, -INFINITY, bestScore, 1);
+            board.unmake();
+            if (isXTurn ? score > bestScore : score < bestScore) {
+                bestScore = score;
+                bestCell = cell;
+            }
+        }
+        table.store(board.key(), limit, bestScore, TranspositionTable.EXACT, bestCell);
+        return bestCell;
+    }
+
+    /**
+     * Minimax algorithm with alpha-beta pruning.
+     *
+     * @param board the current state of the game, the same when the method returns.
+     * @param isXTurn true if it's player 'X's turn, false otherwise.
+     * @param depth the remaining depth of the search.
+     * @param alpha the score 'X' is already assured of.
+     * @param beta the score 'O' is already assured of.
+     * @param ply the distance from the root of the search.
+     * @return the score of the position, exact if it lies inside the window.
+     */
+    private int alphaBeta(Position board, boolean isXTurn, int depth, int alpha, int beta, int ply) {
+        if ((++nodes & 1023) == 0 && deadline != 0 && System.nanoTime() > deadline)
+            throw TIME_UP;
+        int winner = board.winner();
+        if (winner != BitBoard.NO_WINNER)
+            return winner == BitBoard.X ? WIN + depth : -WIN - depth;
+        if (board.turn() >= Game.MAX_TURNS || board.emptyCells() == 0)
+            return 0;
+        if (depth == 0 || ply == MAX_PLY - 1)
+            return evaluate(board);
+
+        long key = board.key();
+        long entry = table.probe(key, depth);
+        int ttMove = Variant.NONE;
+        if (entry != TranspositionTable.MISS) {
+            ttMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) == depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha)
+                    return score;
+            }
+        }
+
+        int[] moves = this.moves[ply];
+        int count = orderMoves(board, ttMove, ply);
+        int originalAlpha = alpha, originalBeta = beta;
+        int bestScore = isXTurn ? -INFINITY : INFINITY;
+        int bestCell = Variant.NONE;
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            board.make(cell);
+            int score = alphaBeta(board, !isXTurn, depth - 1, alpha, beta, ply + 1);
+            board.unmake();
+
+            if (isXTurn ? score > bestScore : score < bestScore) {
+                bestScore = score;
+                bestCell = cell;
+                if (isXTurn && score > alpha)
+                    alpha = score;
+                else if (!isXTurn && score < beta)
+                    beta = score;
+                if (alpha >= beta)
+                    break;
+            }
+        }
+
+        int bound;
+        if (bestScore <= originalAlpha)
+            bound = TranspositionTable.UPPER;
+        else if (bestScore >= originalBeta)
+            bound = TranspositionTable.LOWER;
+        else
+            bound = TranspositionTable.EXACT;
+        table.store(key, depth, bestScore, bound, bestCell);
+        return bestScore;
+    }
+
+    /**
+     * Scores a position from the side of 'X' by its open lines.
+     */
+    private int evaluate(Position board) {
+        long x = board.mask(BitBoard.X), o = board.mask(BitBoard.O);
+        int score = 0;
+        for (long line : variant.getLines()) {
+            long xs = x & line, os = o & line;
+            if (os == 0 && xs != 0)
+                score += weights[Long.bitCount(xs)];
+            else if (xs == 0 && os != 0)
+                score -= weights[Long.bitCount(os)];
+        }
+        return Math.max(-WIN + 1, Math.min(WIN - 1, score));
+    }
+
+    private int ttMove(long key, int depth) {
+        long entry = table.probe(key, depth);
+        return entry == TranspositionTable.MISS ? Variant.NONE : TranspositionTable.move(entry);
+    }
+
+    /**
+     * Fills the moves of a ply, best candidates first: the transposition table move, moves that complete
+     * a line, moves that block a line of the opponent, then the rest from the center out.
+     *
+     * @return the number of moves.
+     */
+    private int orderMoves(Position board, int ttMove, int ply) {
+        int side = board.sideToMove();
+        int removed = board.oldest();
+        long own = board.mask(side) & (removed == Variant.NONE ? -1L : ~(1L << removed));
+        // the opponent loses its oldest piece when it answers
+        int next = board.pieceAt(variant.getWindow() - 1);
+        long opponent = board.mask(1 - side) & (next == Variant.NONE ? -1L : ~(1L << next));
+        long empty = board.emptyCells();
+        int[] moves = this.moves[ply];
+        int[] scores = this.scores[ply];
+        int count = 0;
+        for (int rank = 0; rank < centerOrder.length; rank++) {
+            int cell = centerOrder[rank];
+            if ((empty >>> cell & 1) == 0)
+                continue;
+            int score;
+            if (cell == ttMove)
+                score = 3 << 16;
+            else if (variant.hasLineThrough(own | 1L << cell, cell))
+                score = 2 << 16;
+            else if (variant.hasLineThrough(opponent | 1L << cell, cell))
+                score = 1 << 16;
+            else
+                score = -rank;
+
+            int i = count++;
+            while (i > 0 && scores[i - 1] < score) {
+                scores[i] = scores[i - 1];
+                moves[i] = moves[i - 1];
+                i--;
+            }
+            scores[i] = score;
+            moves[i] = cell;
+        }
+        return count;
+    }
+
+    public void changeLimit(int l) {
+        if (l > MAX_DEPTH || l < 1)
+            return;
+        limit = l;
+    }
+
+    /**
+     * Sets a time budget per move. With a budget the agent deepens its search until the time runs out
+     * instead of searching to the fixed limit.
+     *
+     * @param millis the budget in milliseconds, or 0 to search to the fixed limit.
+     */
+    public void changeTimeBudget(long millis) {
+        if (millis < 0)
+            return;
+        timeBudget = millis;
+    }
+
+    /**
+     * @return the number of nodes this agent has searched, for benchmarks.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Thrown to unwind a search whose time budget ran out.
+     */
+    private static class TimeUp extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TimeUp() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.Random;
+
+/**
+ * The VariantQLearningAgent class represents an AI player for any {@link Variant} of the game that learns
+ * with the same Q-learning formula as {@link QLearningAgent}. The Q-table is keyed by
+ * {@link Position#key()}, and a move is chosen by the value of the position it leads to.
+ */
+public class VariantQLearningAgent extends VariantAgent {
+
+    private static final double LEARNING_RATE = 0.1;
+    private static final double DISCOUNT_FACTOR = 0.9;
+    private double explorationRate = 0.0; // random play p
+    private boolean learning = true;
+
+    private final QValues qTable;
+    private final Random random = new Random();
+
+    /**
+     * Constructs an agent with an empty Q-table.
+     */
+    public VariantQLearningAgent() {
+        this(new QTable());
+    }
+
+    /**
+     * Constructs an agent with a Q-table of its own choosing, for example one shared with other agents.
+     *
+     * @param qTable The Q-table to play with and update
+     */
+    public VariantQLearningAgent(QValues qTable) {
+        this.qTable = qTable;
+    }
+
+    /**
+     * Determines the next move for the agent based on the current position.
+     * The agent either selects a random move or uses the Q-table to choose the best move.
+     *
+     * @param position The current state of the game
+     * @return The cell index of the chosen move
+     */
+    @Override
+    public int getPlayCell(Position position) {
+        long availableMoves = position.emptyCells();
+
+        if (random.nextDouble() < explorationRate) {
+            for (int skip = random.nextInt(Long.bitCount(availableMoves)); skip > 0; skip--)
+                availableMoves &= availableMoves - 1;
+            return Long.numberOfTrailingZeros(availableMoves);
+        }
+
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int bestMove = Long.numberOfTrailingZeros(availableMoves);
+        for (long moves = availableMoves; moves != 0; moves &= moves - 1) {
+            int move = Long.numberOfTrailingZeros(moves);
+            position.make(move);
+            double value = qTable.get(position.key(), 0.0);
+            position.unmake();
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Updates the Q-table for a move, using the Q-learning formula.
+     *
+     * @param key The key of the position before the move
+     * @param reward The reward received after the move
+     * @param nextKey The key of the position after the move
+     */
+    public void updateQTable(long key, int reward, long nextKey) {
+        if (!learning)
+            return;
+        double target = reward + DISCOUNT_FACTOR * qTable.get(nextKey, 0.0);
+        qTable.learn(key, target, LEARNING_RATE);
+    }
+
+    /**
+     * @return the Q-table the agent plays with and updates.
+     */
+    public QValues getQTable() {
+        return qTable;
+    }
+
+    /**
+     * Turns learning on or off.
+     *
+     * @param learning true to update the Q-table after every move.
+     */
+    public void changeLearning(boolean learning) {
+        this.learning = learning;
+    }
+
+    public void changeRandom(double p) {
+        if (p < 0 || p > 1)
+            return;
+        explorationRate = p;
+    }
+}
@@ -0,0 +1,349 @@
+import benchmarks.Workload;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * The operations measured by the JMH benchmarks, in the default package with the game. Positions and keys
+ * come from fixed seeds, so every run measures the same work.
+ */
+public final class Workloads {
+
+    private static final int POSITIONS = 64;
+    private static final int VARIANT_POSITIONS = 16;
+
+    private Workloads() {
+    }
+
+    /**
+     * Creates a workload.
+     *
+     * @param name "alphabeta:limit", "minimax:limit" or "variant5x5:limit" for a search, whose result is the
+     *             number of nodes, "mcts.playouts" for a Monte Carlo search, whose result is the number of
+     *             playouts, or the name of one of the other workloads below.
+     * @return the workload.
+     * @throws IllegalArgumentException if there is no such workload.
+     */
+    public static Workload create(String name) {
+        long[] positions = positions();
+        String[] parts = name.split(":");
+        switch (parts[0]) {
+            case "alphabeta":
+            case "minimax":
+                return search(positions, Integer.parseInt(parts[1]), parts[0].equals("alphabeta"));
+            case "variant5x5":
+                return variantSearch(new Variant(5, 4, 8), Integer.parseInt(parts[1]));
+            case "mcts.playouts": {
+                MctsAgent mcts = new MctsAgent();
+                mcts.changeTimeBudget(60_000);
+                mcts.changePlayouts(1000);
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        mcts.getPlayCell(positions[i++ & (POSITIONS - 1)]);
+                        return mcts.getPlayouts();
+                    }
+                };
+            }
+            case "bitboard.apply":
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        long state = positions[i++ & (POSITIONS - 1)];
+                        return BitBoard.apply(state, Integer.numberOfTrailingZeros(BitBoard.emptyCells(state)));
+                    }
+                };
+            case "bitboard.winner":
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        return BitBoard.winner(positions[i++ & (POSITIONS - 1)]);
+                    }
+                };
+            case "agent.copy": {
+                int[][] board = BitBoard.toBoard(positions[0]);
+                MinMaxAgent copier = new MinMaxAgent('X');
+                return () -> copier.copy(board)[1][1];
+            }
+            case "variant5x5.makeUnmake": {
+                Position position = new Position(new Variant(5, 4, 8));
+                for (int cell : new int[]{12, 6, 18, 7, 8, 0, 24, 3, 20})
+                    position.make(cell);
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        long empty = position.emptyCells();
+                        for (int skip = i++ % Long.bitCount(empty); skip > 0; skip--)
+                            empty &= empty - 1;
+                        position.make(Long.numberOfTrailingZeros(empty));
+                        long result = position.winner() + position.key();
+                        position.unmake();
+                        return result;
+                    }
+                };
+            }
+            case "qtable.get": {
+                QTable table = table();
+                long[] keys = keys(positions, table);
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        return (long) table.get(keys[i++ & (keys.length - 1)], 0.0);
+                    }
+                };
+            }
+            case "qtable.learn": {
+                QTable table = table();
+                long[] keys = keys(positions, table);
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        return (long) table.learn(keys[i++ & (keys.length - 1)], 1.0, 0.1);
+                    }
+                };
+            }
+            case "ql.getPlayCell": {
+                QLearningAgent player = new QLearningAgent('X', table());
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        return player.getPlayCell(positions[i++ & (POSITIONS - 1)]);
+                    }
+                };
+            }
+            case "ql.updateQTable": {
+                QLearningAgent player = new QLearningAgent('X', table());
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        long state = positions[i++ & (POSITIONS - 1)];
+                        int cell = Integer.numberOfTrailingZeros(BitBoard.emptyCells(state));
+                        player.updateQTable(state, cell, -1, BitBoard.apply(state, cell));
+                        return cell;
+                    }
+                };
+            }
+            case "policy.getPlayCell": {
+                PolicyAgent policy = new PolicyAgent(PolicyTable.compile('X', table()));
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        return policy.getPlayCell(positions[i++ & (POSITIONS - 1)]);
+                    }
+                };
+            }
+            case "db.readText": {
+                Path text = textDb();
+                return () -> {
+                    try {
+                        return QTableFile.readText(text).size();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+            }
+            case "db.map": {
+                Path binary = temporary("DBForX", ".bin");
+                try {
+                    QTableFile.write(table(), binary);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return () -> {
+                    try {
+                        return QTableFile.map(binary).size();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+            }
+            case "game.ql-vs-minmax3": {
+                Agent learner = new QLearningAgent('X', table());
+                MinMaxAgent opponent = new MinMaxAgent('O');
+                opponent.changeLimit(3);
+                return () -> Tournament.run(learner, opponent, 1, false).getGames();
+            }
+            case "game.minmax3-vs-minmax3": {
+                MinMaxAgent x = new MinMaxAgent('X'), o = new MinMaxAgent('O');
+                x.changeLimit(3);
+                o.changeLimit(3);
+                return () -> Tournament.run(x, o, 1, false).getGames();
+            }
+            case "gamelog.recordGame": {
+                GameLog log;
+                try {
+                    log = new GameLog(temporary("Games", ".log"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                GameLog.Recorder recorder = log.recorder("X", "O");
+                return new Workload() {
+                    int i = 0;
+
+                    public long run() {
+                        for (int turn = 0; turn < 20; turn++)
+                            recorder.move(turn % BitBoard.CELLS, 1000 + turn * 100);
+                        recorder.gameOver(i++ % 3 - 1);
+                        return i;
+                    }
+
+                    public void close() {
+                        try {
+                            log.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("unknown workload " + name);
+        }
+    }
+
+    /**
+     * Searches all the fixed positions, from a transposition table that is emptied first, the way the moves
+     * of a game share the table. The result is the number of nodes of all the searches.
+     */
+    private static Workload search(long[] positions, int limit, boolean alphaBeta) {
+        MinMaxAgent x = new MinMaxAgent('X'), o = new MinMaxAgent('O');
+        for (MinMaxAgent agent : new MinMaxAgent[]{x, o}) {
+            agent.changeLimit(limit);
+            agent.changeAlphaBeta(alphaBeta);
+        }
+        return () -> {
+            MinMaxAgent.clearTable();
+            long nodes = x.getNodes() + o.getNodes();
+            for (long state : positions)
+                (BitBoard.sideToMove(state) == BitBoard.X ? x : o).getPlayCell(state);
+            return x.getNodes() + o.getNodes() - nodes;
+        };
+    }
+
+    /**
+     * Searches fixed positions of a variant with a new agent, so from an empty transposition table.
+     * The result is the number of nodes of all the searches.
+     */
+    private static Workload variantSearch(Variant variant, int limit) {
+        Random random = new Random(42);
+        Position[] positions = new Position[VARIANT_POSITIONS];
+        for (int i = 0; i < VARIANT_POSITIONS; i++)
+            positions[i] = randomPosition(variant, random);
+        return () -> {
+            VariantMinMaxAgent agent = new VariantMinMaxAgent(variant);
+            agent.changeLimit(limit);
+            for (Position position : positions)
+                agent.getPlayCell(position);
+            return agent.getNodes();
+        };
+    }
+
+    private static long[] positions() {
+        Random random = new Random(42);
+        long[] positions = new long[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++)
+            positions[i] = randomPosition(random);
+        return positions;
+    }
+
+    /**
+     * Plays random moves from the empty board, and keeps a position that is not over yet.
+     */
+    private static long randomPosition(Random random) {
+        while (true) {
+            long state = BitBoard.EMPTY;
+            int plies = random.nextInt(20);
+            for (int i = 0; i < plies && BitBoard.winner(state) == BitBoard.NO_WINNER; i++) {
+                int empty = BitBoard.emptyCells(state);
+                for (int skip = random.nextInt(Integer.bitCount(empty)); skip > 0; skip--)
+                    empty &= empty - 1;
+                state = BitBoard.apply(state, Integer.numberOfTrailingZeros(empty));
+            }
+            if (BitBoard.winner(state) == BitBoard.NO_WINNER)
+                return state;
+        }
+    }
+
+    /**
+     * Plays 4 to 11 random moves from the empty board of a variant, and keeps a position that is not over yet.
+     */
+    private static Position randomPosition(Variant variant, Random random) {
+        while (true) {
+            Position position = new Position(variant);
+            int plies = 4 + random.nextInt(8);
+            for (int i = 0; i < plies && position.winner() == BitBoard.NO_WINNER; i++) {
+                long empty = position.emptyCells();
+                for (int skip = random.nextInt(Long.bitCount(empty)); skip > 0; skip--)
+                    empty &= empty - 1;
+                position.make(Long.numberOfTrailingZeros(empty));
+            }
+            if (position.winner() == BitBoard.NO_WINNER)
+                return position;
+        }
+    }
+
+    /**
+     * @return the keys of the fixed positions, overwritten by keys of the table where it has some.
+     */
+    private static long[] keys(long[] positions, QTable table) {
+        long[] keys = new long[1024];
+        for (int i = 0; i < keys.length; i++) {
+            long state = positions[i & (POSITIONS - 1)];
+            keys[i] = QLearningAgent.canonicalKey(state, BitBoard.turn(state));
+        }
+        int[] k = {0};
+        table.forEach((key, value) -> keys[k[0]++ & (keys.length - 1)] = key);
+        return keys;
+    }
+
+    /**
+     * @return the table of "DBForX.txt" in the working directory, or an empty table without it.
+     */
+    private static QTable table() {
+        Path db = Paths.get("DBForX.txt");
+        try {
+            return Files.exists(db) ? Symmetry.fold(QTableFile.readText(db)) : new QTable();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return "DBForX.txt" in the working directory, or a copy of an empty table without it.
+     */
+    private static Path textDb() {
+        Path db = Paths.get("DBForX.txt");
+        if (Files.exists(db))
+            return db;
+        Path text = temporary("DBForX", ".txt");
+        try {
+            QTableFile.writeText(new QTable(), text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text;
+    }
+
+    private static Path temporary(String prefix, String suffix) {
+        try {
+            Path file = Files.createTempFile(prefix, suffix);
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * The alpha-beta search at every limit.
+ */
+public class AlphaBetaBenchmark extends SearchBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9"})
+    public int limit;
+
+    @Override
+    protected String workloadName() {
+        return "alphabeta:" + limit;
+    }
+}
@@ -0,0 +1,31 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The board operations: moves and win checks on the 3x3 board and on a 5x5 variant, and the board copy
+ * of the agents.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BoardBenchmark extends WorkloadBenchmark {
+
+    @Param({"bitboard.apply", "bitboard.winner", "variant5x5.makeUnmake", "agent.copy"})
+    public String name;
+
+    @Override
+    protected String workloadName() {
+        return name;
+    }
+
+    @Benchmark
+    public long run() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the DB: parsing "DBForX.txt", and mapping the same table in the binary format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DbBenchmark extends WorkloadBenchmark {
+
+    @Param({"db.readText", "db.map"})
+    public String name;
+
+    @Override
+    protected String workloadName() {
+        return name;
+    }
+
+    @Benchmark
+    public long load() {
+        return workload.run();
+    }
+}
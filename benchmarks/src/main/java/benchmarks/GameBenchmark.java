@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole headless games per second, and games recorded to a {@code GameLog} per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GameBenchmark extends WorkloadBenchmark {
+
+    @Param({"game.ql-vs-minmax3", "game.minmax3-vs-minmax3", "gamelog.recordGame"})
+    public String name;
+
+    @Override
+    protected String workloadName() {
+        return name;
+    }
+
+    @Benchmark
+    public long game() {
+        return workload.run();
+    }
+}
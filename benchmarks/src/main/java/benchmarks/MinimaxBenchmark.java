@@ -0,0 +1,17 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * The plain minimax search, up to the limit where a search still takes well under a second.
+ */
+public class MinimaxBenchmark extends SearchBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7"})
+    public int limit;
+
+    @Override
+    protected String workloadName() {
+        return "minimax:" + limit;
+    }
+}
@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and updates of the Q-table of "DBForX.txt", and the moves of the agents that use it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QTableBenchmark extends WorkloadBenchmark {
+
+    @Param({"qtable.get", "qtable.learn", "ql.getPlayCell", "ql.updateQTable", "policy.getPlayCell"})
+    public String name;
+
+    @Override
+    protected String workloadName() {
+        return name;
+    }
+
+    @Benchmark
+    public long run() {
+        return workload.run();
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches of the Min-Max agents: an operation searches all the fixed positions, starting from an empty
+ * transposition table, and the "nodes" counter is the number of nodes searched per second. Emptying the
+ * table is part of the operation, and weighs on the shallowest limits, where the searches are only a
+ * few nodes each; an operation is long enough to be timed on its own at every limit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public abstract class SearchBenchmark extends WorkloadBenchmark {
+
+    /**
+     * Counts the searched nodes, which JMH reports as a rate next to the searches.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Benchmark
+    public void search(Nodes counter) {
+        counter.nodes += workload.run();
+    }
+}
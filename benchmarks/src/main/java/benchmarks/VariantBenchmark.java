@@ -0,0 +1,18 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * The alpha-beta search of the variant agent on a 5x5 board with lines of 4 and a window of 8 pieces. An
+ * operation searches all the fixed positions with a new agent, so from an empty transposition table.
+ */
+public class VariantBenchmark extends SearchBenchmark {
+
+    @Param({"2", "3", "4"})
+    public int limit;
+
+    @Override
+    protected String workloadName() {
+        return "variant5x5:" + limit;
+    }
+}
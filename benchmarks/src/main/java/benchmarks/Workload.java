@@ -0,0 +1,39 @@
+package benchmarks;
+
+/**
+ * An operation of the game, run by the JMH benchmarks.
+ * <p>
+ * The game is in the default package, which JMH doesn't accept for benchmarks and which other packages
+ * can't import, so the operations are written in the default package ({@code Workloads}) and the
+ * benchmarks reach them through this interface. Every benchmark runs in a JVM of its own with a single
+ * workload, so the calls through the interface are inlined like direct calls.
+ */
+public interface Workload {
+
+    /**
+     * Runs the operation once.
+     *
+     * @return the number of nodes for the searches, and a result of the work for everything else.
+     */
+    long run();
+
+    /**
+     * Releases the resources of the workload.
+     */
+    default void close() {
+    }
+
+    /**
+     * Creates a workload.
+     *
+     * @param name the name of the workload, see {@code Workloads#create(String)}.
+     * @return the workload.
+     */
+    static Workload create(String name) {
+        try {
+            return (Workload) Class.forName("Workloads").getMethod("create", String.class).invoke(null, name);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("can't create the workload " + name, e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs one {@link Workload}, given by the parameters of the subclass, in a forked JVM of its own.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class WorkloadBenchmark {
+
+    protected Workload workload;
+
+    /**
+     * @return the name of the workload to run, see {@link Workload#create(String)}.
+     */
+    protected abstract String workloadName();
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        workload = Workload.create(workloadName());
+    }
+
+    @TearDown(Level.Trial)
+    public void closeWorkload() {
+        workload.close();
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Plays random games on a {@link BitBoard} and on the array board the game was first written with, where
+ * every cell holds the turn it was played at or -1, and checks that they stay the same.
+ */
+class BitBoardTest {
+
+    private static final int GAMES = 2000;
+    private static final int MAX_TURNS = 100; // Games are stopped after this many turns
+
+    @Test
+    void applyPlaysLikeTheArrayBoard() {
+        Random random = new Random(1);
+        for (int game = 0; game < GAMES; game++) {
+            long state = BitBoard.EMPTY;
+            int[][] board = emptyBoard();
+            for (int turn = 0; turn < MAX_TURNS && BitBoard.winner(state) == BitBoard.NO_WINNER; turn++) {
+                int cell = randomCell(BitBoard.emptyCells(state), random);
+                assertEquals(-1, board[cell / 3][cell % 3], "the cell is empty on both boards");
+                state = BitBoard.apply(state, cell);
+                play(board, cell, turn);
+
+                assertEquals(turn + 1, BitBoard.turn(state));
+                assertArrayEquals(board, BitBoard.toBoard(state));
+                assertEquals(state, BitBoard.fromBoard(board, turn + 1));
+                assertEquals(winner(board), BitBoard.winner(state));
+                assertEquals(emptyCells(board), BitBoard.emptyCells(state));
+            }
+        }
+    }
+
+    @Test
+    void undoRestoresTheState() {
+        Random random = new Random(2);
+        for (int game = 0; game < GAMES; game++) {
+            long state = BitBoard.EMPTY;
+            List<Long> states = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            while (BitBoard.turn(state) < 30 && BitBoard.winner(state) == BitBoard.NO_WINNER) {
+                states.add(state);
+                removed.add(BitBoard.oldest(state));
+                state = BitBoard.apply(state, randomCell(BitBoard.emptyCells(state), random));
+            }
+            for (int i = states.size() - 1; i >= 0; i--) {
+                state = BitBoard.undo(state, removed.get(i));
+                assertEquals(states.get(i), state);
+            }
+        }
+    }
+
+    @Test
+    void theOldestPieceDisappearsFromTurnSix() {
+        long state = BitBoard.EMPTY;
+        for (int cell : new int[]{0, 1, 2, 4, 3, 5})
+            state = BitBoard.apply(state, cell);
+        assertEquals(0, BitBoard.oldest(state));
+        state = BitBoard.apply(state, 7);
+        assertEquals(1, BitBoard.emptyCells(state) & 1, "cell 0 is empty again");
+        assertEquals(1, BitBoard.oldest(state));
+    }
+
+    private static int[][] emptyBoard() {
+        int[][] board = new int[3][3];
+        for (int[] row : board)
+            Arrays.fill(row, -1);
+        return board;
+    }
+
+    /**
+     * Plays a move the way the game did on the array board: from turn 6 the piece of turn - 6 is deleted.
+     */
+    private static void play(int[][] board, int cell, int turn) {
+        if (turn >= 6) {
+            for (int[] row : board) {
+                for (int j = 0; j < 3; j++) {
+                    if (row[j] == turn - 6)
+                        row[j] = -1;
+                }
+            }
+        }
+        board[cell / 3][cell % 3] = turn;
+    }
+
+    private static int winner(int[][] board) {
+        int[][] lines = {{0, 1, 2}, {3, 4, 5}, {6, 7, 8}, {0, 3, 6}, {1, 4, 7}, {2, 5, 8}, {0, 4, 8}, {2, 4, 6}};
+        int winner = BitBoard.NO_WINNER;
+        for (int side : new int[]{BitBoard.O, BitBoard.X}) {
+            for (int[] line : lines) {
+                boolean full = true;
+                for (int cell : line) {
+                    int value = board[cell / 3][cell % 3];
+                    full &= value != -1 && value % 2 == (side == BitBoard.X ? 0 : 1);
+                }
+                if (full)
+                    winner = side;
+            }
+        }
+        return winner;
+    }
+
+    private static int emptyCells(int[][] board) {
+        int empty = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            if (board[cell / 3][cell % 3] == -1)
+                empty |= 1 << cell;
+        }
+        return empty;
+    }
+
+    private static int randomCell(int empty, Random random) {
+        for (int skip = random.nextInt(Integer.bitCount(empty)); skip > 0; skip--)
+            empty &= empty - 1;
+        return Integer.numberOfTrailingZeros(empty);
+    }
+}
@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameLogTest {
+
+    private static final int MAX_TURNS = 255; // The most turns a logged game holds
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void gamesAreReplayedAsRecorded() throws IOException {
+        Path file = directory.resolve("Games.log");
+        List<String> recorded = new ArrayList<>();
+        Random random = new Random(7);
+        try (GameLog log = new GameLog(file)) {
+            GameLog.Recorder first = log.recorder("ql", "minmax:3");
+            GameLog.Recorder second = log.recorder("mcts", "ql");
+            for (int game = 0; game < 1000; game++) {
+                GameLog.Recorder recorder = game % 3 == 0 ? second : first;
+                int turns = 1 + random.nextInt(MAX_TURNS);
+                StringBuilder moves = new StringBuilder();
+                for (int turn = 0; turn < turns; turn++) {
+                    int cell = random.nextInt(BitBoard.CELLS);
+                    long nanos = random.nextInt(4) == 0 ? random.nextLong() & Long.MAX_VALUE : random.nextInt(1000000);
+                    recorder.move(cell, nanos);
+                    moves.append(cell).append('/').append(nanos).append(' ');
+                }
+                int winner = random.nextInt(3) - 1;
+                recorder.gameOver(winner);
+                recorded.add((game % 3 == 0 ? "mcts ql " : "ql minmax:3 ") + winner + " " + moves);
+            }
+        }
+        assertEquals(recorded, replay(file));
+    }
+
+    @Test
+    void aReopenedLogAppends() throws IOException {
+        Path file = directory.resolve("Games.log");
+        for (int run = 0; run < 3; run++) {
+            try (GameLog log = new GameLog(file)) {
+                GameLog.Recorder recorder = log.recorder("run" + run, "minmax");
+                recorder.move(4, 100);
+                recorder.gameOver(BitBoard.X);
+            }
+        }
+        assertEquals(List.of("run0 minmax 0 4/100 ", "run1 minmax 0 4/100 ", "run2 minmax 0 4/100 "), replay(file));
+    }
+
+    @Test
+    void aTornRecordIsCutOffWhenTheLogIsReopened() throws IOException {
+        Path file = directory.resolve("Games.log");
+        try (GameLog log = new GameLog(file)) {
+            GameLog.Recorder recorder = log.recorder("a", "b");
+            for (int game = 0; game < 2; game++) {
+                recorder.move(game, 100);
+                recorder.move(8, 200);
+                recorder.gameOver(BitBoard.NO_WINNER);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2); // a crash in the middle of the second game
+        }
+        assertEquals(1, replay(file).size());
+
+        try (GameLog log = new GameLog(file)) {
+            GameLog.Recorder recorder = log.recorder("c", "d");
+            recorder.move(5, 300);
+            recorder.gameOver(BitBoard.O);
+        }
+        assertEquals(List.of("a b -1 0/100 8/200 ", "c d 1 5/300 "), replay(file));
+    }
+
+    @Test
+    void agentsPastTheLastIdShareIt() throws IOException {
+        Path file = directory.resolve("Games.log");
+        try (GameLog log = new GameLog(file)) {
+            for (int agent = 0; agent < 300; agent++)
+                log.recorder("agent" + agent, "agent0").gameOver(BitBoard.X);
+        }
+        List<String> games = replay(file);
+        assertEquals(300, games.size());
+        assertEquals("agent254 agent0 0 ", games.get(254));
+        assertEquals("other agent0 0 ", games.get(255));
+        assertEquals("other agent0 0 ", games.get(299));
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Path file = directory.resolve("Games.log");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertThrows(IOException.class, () -> new GameLog(file));
+        assertThrows(IOException.class, () -> GameLog.replay(file, (x, o, winner, turns, cells, nanos) -> { }));
+    }
+
+    /**
+     * @return every game of the log as "X O winner cell/nanos...".
+     */
+    private static List<String> replay(Path file) throws IOException {
+        List<String> games = new ArrayList<>();
+        long count = GameLog.replay(file, (xAgent, oAgent, winner, turns, cells, nanos) -> {
+            StringBuilder game = new StringBuilder(xAgent + " " + oAgent + " " + winner + " ");
+            for (int turn = 0; turn < turns; turn++)
+                game.append(cells[turn]).append('/').append(nanos[turn]).append(' ');
+            games.add(game.toString());
+        });
+        assertEquals(games.size(), count);
+        return games;
+    }
+}
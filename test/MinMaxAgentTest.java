@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Searches random positions with the alpha-beta search, on the calling thread and on a pool, and checks
+ * that it picks the same cell as the plain Minimax search.
+ */
+class MinMaxAgentTest {
+
+    private static final int POSITIONS = 200;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void alphaBetaPicksTheMinimaxMove() {
+        checkAgainstMinimax(false);
+    }
+
+    @Test
+    void theParallelSearchPicksTheMinimaxMove() {
+        checkAgainstMinimax(true);
+    }
+
+    private static void checkAgainstMinimax(boolean parallel) {
+        Random random = new Random(19);
+        for (int limit = 1; limit <= 6; limit++) {
+            MinMaxAgent[] plain = agents(limit, false, null);
+            MinMaxAgent[] alphaBeta = agents(limit, true, parallel ? pool : null);
+            for (int i = 0; i < POSITIONS; i++) {
+                long state = randomPosition(random);
+                int side = BitBoard.sideToMove(state);
+                assertEquals(plain[side].getPlayCell(state), alphaBeta[side].getPlayCell(state),
+                        "limit " + limit + ", position " + Long.toHexString(state));
+            }
+        }
+    }
+
+    /**
+     * @return an agent for X and an agent for O, indexed by {@link BitBoard#X} and {@link BitBoard#O}.
+     */
+    private static MinMaxAgent[] agents(int limit, boolean alphaBeta, ForkJoinPool pool) {
+        MinMaxAgent[] agents = {new MinMaxAgent('X'), new MinMaxAgent('O')};
+        for (MinMaxAgent agent : agents) {
+            agent.changeLimit(limit);
+            agent.changeAlphaBeta(alphaBeta);
+            agent.changePool(pool);
+        }
+        return agents;
+    }
+
+    /**
+     * Plays random moves from the empty board, and keeps a position that is not over yet.
+     */
+    private static long randomPosition(Random random) {
+        while (true) {
+            long state = BitBoard.EMPTY;
+            int plies = random.nextInt(20);
+            for (int i = 0; i < plies && BitBoard.winner(state) == BitBoard.NO_WINNER; i++) {
+                int empty = BitBoard.emptyCells(state);
+                for (int skip = random.nextInt(Integer.bitCount(empty)); skip > 0; skip--)
+                    empty &= empty - 1;
+                state = BitBoard.apply(state, Integer.numberOfTrailingZeros(empty));
+            }
+            if (BitBoard.winner(state) == BitBoard.NO_WINNER)
+                return state;
+        }
+    }
+}
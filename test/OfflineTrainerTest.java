@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OfflineTrainerTest {
+
+    private static final int GAMES = 300;
+
+    @TempDir
+    static Path directory;
+
+    private static Path log;
+    private static QTable online;
+
+    /**
+     * Plays a learning run against Min-Max and records it, keeping the table it learned.
+     */
+    @BeforeAll
+    static void record() throws IOException {
+        log = directory.resolve("Games.log");
+        online = new QTable();
+        QLearningAgent learner = new QLearningAgent('X', online);
+        learner.changeRandom(0.3);
+        MinMaxAgent opponent = new MinMaxAgent('O');
+        opponent.changeLimit(2);
+        try (GameLog games = new GameLog(log)) {
+            GameListener listener = games.listener("ql", "minmax");
+            for (int i = 0; i < GAMES; i++)
+                Game.game(learner, opponent, new GameStats(), false, listener);
+        }
+    }
+
+    @Test
+    void oneSweepOnOneThreadLearnsTheTableOfTheRun() throws IOException {
+        QTable offline = train(1, 1);
+        assertEquals(online.size(), offline.size());
+        online.forEach((key, value) -> assertEquals(value, offline.get(key, Double.NaN), 0.0));
+    }
+
+    @Test
+    void threadsLearnTheSameStates() throws IOException {
+        QTable single = train(3, 1);
+        QTable merged = train(3, 4);
+        assertEquals(single.size(), merged.size());
+        single.forEach((key, value) -> assertTrue(merged.contains(key)));
+    }
+
+    @Test
+    void threadsAreDeterministic() throws IOException {
+        QTable first = train(3, 4);
+        QTable second = train(3, 4);
+        first.forEach((key, value) -> assertEquals(value, second.get(key, Double.NaN), 0.0));
+    }
+
+    /**
+     * A sweep on several threads makes fewer updates to the states of every partition than a sweep on one,
+     * so the tables are only the same once the sweeps have converged.
+     */
+    @Test
+    void threadsConvergeToTheTableOfOneThread() throws IOException {
+        QTable single = train(200, 1);
+        QTable merged = train(200, 4);
+        double[] sums = {0, 0}; // differences, values
+        single.forEach((key, value) -> {
+            sums[0] += Math.abs(value - merged.get(key, 0.0));
+            sums[1] += Math.abs(value);
+        });
+        assertTrue(sums[0] < 0.02 * sums[1], "the tables differ by " + sums[0] / sums[1]);
+    }
+
+    private static QTable train(int sweeps, int threads) throws IOException {
+        QTable table = new QTable();
+        OfflineTrainer.train(List.of(log), table, values -> new QLearningAgent('X', values), sweeps, threads);
+        return table;
+    }
+}
@@ -0,0 +1,119 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PositionTest {
+
+    private static final Variant[] VARIANTS = {
+            Variant.CLASSIC, new Variant(5, 4, 8), new Variant(4, 3, 0), new Variant(3, 3, 2)};
+
+    @Test
+    void unmakeUndoesMake() {
+        Random random = new Random(23);
+        for (Variant variant : VARIANTS) {
+            for (int game = 0; game < 200; game++) {
+                Position position = new Position(variant);
+                for (int turn = 0; turn < 40 && position.winner() == BitBoard.NO_WINNER
+                        && position.emptyCells() != 0; turn++) {
+                    long x = position.mask(BitBoard.X), o = position.mask(BitBoard.O), key = position.key();
+                    String board = position.toString();
+                    int side = position.sideToMove(), removed = position.oldest();
+                    int cell = randomCell(position, random);
+
+                    position.make(cell);
+                    assertTrue((position.mask(side) >>> cell & 1) != 0, variant + " " + board);
+                    if (removed != Variant.NONE)
+                        assertEquals(0, position.mask(side) >>> removed & 1, "the oldest piece stays " + board);
+                    position.unmake();
+
+                    assertEquals(x, position.mask(BitBoard.X), variant + "\n" + board);
+                    assertEquals(o, position.mask(BitBoard.O), variant + "\n" + board);
+                    assertEquals(key, position.key(), variant + "\n" + board);
+                    assertEquals(turn, position.turn());
+                    assertEquals(board, position.toString());
+                    position.make(cell);
+                }
+            }
+        }
+    }
+
+    @Test
+    void theWindowKeepsItsPieces() {
+        Variant variant = new Variant(5, 4, 8);
+        Position position = new Position(variant);
+        int[] cells = {0, 24, 1, 23, 2, 22, 10, 14, 3, 21};
+        for (int cell : cells)
+            position.make(cell);
+        // the first moves of both sides are gone, the rest stays
+        assertEquals(1L << 1 | 1L << 2 | 1L << 10 | 1L << 3, position.mask(BitBoard.X));
+        assertEquals(1L << 23 | 1L << 22 | 1L << 14 | 1L << 21, position.mask(BitBoard.O));
+        assertEquals(21, position.pieceAt(1));
+        assertEquals(1, position.pieceAt(8));
+        assertEquals(Variant.NONE, position.pieceAt(9));
+        assertEquals(1, position.oldest());
+    }
+
+    @Test
+    void keysAreExactForSmallBoards() {
+        // every position of the first plies, with the pieces that can still matter and the side to move
+        checkKeys(Variant.CLASSIC, 9);
+        checkKeys(new Variant(3, 3, 0), 9);
+        checkKeys(new Variant(5, 4, 8), 3);
+    }
+
+    private static void checkKeys(Variant variant, int plies) {
+        Map<Long, String> futures = new HashMap<>();
+        Map<String, Long> keys = new HashMap<>();
+        List<Position> level = new ArrayList<>();
+        level.add(new Position(variant));
+        for (int ply = 0; ply <= plies; ply++) {
+            List<Position> next = new ArrayList<>();
+            for (Position position : level) {
+                long key = position.key();
+                String future = future(position);
+                assertTrue(key >= 0);
+                String known = futures.putIfAbsent(key, future);
+                assertEquals(known == null ? future : known, future, variant + " key " + key);
+                Long knownKey = keys.putIfAbsent(future, key);
+                assertEquals(knownKey == null ? key : knownKey, key, variant + " " + future);
+                if (position.winner() != BitBoard.NO_WINNER)
+                    continue;
+                for (long empty = position.emptyCells(); empty != 0; empty &= empty - 1) {
+                    Position child = position.copy();
+                    child.make(Long.numberOfTrailingZeros(empty));
+                    next.add(child);
+                }
+            }
+            level = next;
+        }
+        assertNotEquals(0, keys.size());
+    }
+
+    /**
+     * @return what decides the rest of the game: the cells of the pieces on the board in the order they
+     *         will disappear, or only the cells without a window, and the side to move.
+     */
+    private static String future(Position position) {
+        if (position.getVariant().getWindow() == 0)
+            return position.mask(BitBoard.X) + "/" + position.mask(BitBoard.O) + "/" + position.sideToMove();
+        StringBuilder future = new StringBuilder();
+        for (int age = 1; position.pieceAt(age) != Variant.NONE; age++)
+            future.append(position.pieceAt(age)).append(',');
+        return future.append(position.sideToMove()).toString();
+    }
+
+    private static int randomCell(Position position, Random random) {
+        long empty = position.emptyCells();
+        for (int skip = random.nextInt(Long.bitCount(empty)); skip > 0; skip--)
+            empty &= empty - 1;
+        return Long.numberOfTrailingZeros(empty);
+    }
+}
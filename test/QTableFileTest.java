@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QTableFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void binaryTablesSurviveAFile() throws IOException {
+        QTable table = randomTable(5000);
+        Path file = directory.resolve("DBForX.bin");
+        QTableFile.write(table, file);
+        QTableFile.Mapped mapped = QTableFile.map(file);
+        assertEquals(table.size(), mapped.size());
+        assertTrue(mapped.isCanonical());
+        table.forEach((key, value) -> assertEquals(value, mapped.get(key, Double.NaN), 0.0));
+        int[] visited = {0};
+        mapped.forEach((key, value) -> {
+            assertEquals(table.get(key, Double.NaN), value, 0.0);
+            visited[0]++;
+        });
+        assertEquals(table.size(), visited[0]);
+        assertFalse(mapped.contains(-2));
+    }
+
+    @Test
+    void textTablesSurviveAFile() throws IOException {
+        QTable table = randomTable(1000);
+        Path file = directory.resolve("DBForX.txt");
+        QTableFile.writeText(table, file);
+        QTable read = QTableFile.readText(file);
+        assertEquals(table.size(), read.size());
+        table.forEach((key, value) -> assertEquals(value, read.get(key, Double.NaN), 0.0));
+    }
+
+    @Test
+    void symmetricStatesAreFoldedWhenWritten() throws IOException {
+        long state = BitBoard.apply(BitBoard.EMPTY, 0); // X in a corner, O to move
+        long key = QLearningAgent.stateKey(state, 1);
+        long mirror = Symmetry.transformQKey(key, 1);
+        QTable table = new QTable();
+        table.put(key, 1.0);
+        table.put(mirror, 3.0);
+        Path file = directory.resolve("DBForX.bin");
+        QTableFile.write(table, file);
+        QTableFile.Mapped mapped = QTableFile.map(file);
+        assertEquals(1, mapped.size());
+        assertEquals(2.0, mapped.get(Symmetry.canonicalQKey(key), Double.NaN), 0.0);
+    }
+
+    @Test
+    void corruptedFilesAreRejected() throws IOException {
+        Path file = directory.resolve("DBForX.bin");
+        QTableFile.write(randomTable(100), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 100);
+        }
+        assertThrows(IOException.class, () -> QTableFile.map(file));
+
+        QTableFile.write(randomTable(100), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 16);
+        }
+        assertThrows(IOException.class, () -> QTableFile.map(file));
+    }
+
+    /**
+     * @return a table with the canonical keys of random positions.
+     */
+    static QTable randomTable(int positions) {
+        Random random = new Random(4);
+        QTable table = new QTable();
+        for (int i = 0; i < positions; i++) {
+            long state = BitBoard.EMPTY;
+            for (int plies = random.nextInt(12); plies > 0 && BitBoard.winner(state) == BitBoard.NO_WINNER; plies--) {
+                int empty = BitBoard.emptyCells(state);
+                for (int skip = random.nextInt(Integer.bitCount(empty)); skip > 0; skip--)
+                    empty &= empty - 1;
+                state = BitBoard.apply(state, Integer.numberOfTrailingZeros(empty));
+            }
+            table.put(QLearningAgent.canonicalKey(state, BitBoard.turn(state)), random.nextGaussian() * 100);
+        }
+        return table;
+    }
+}
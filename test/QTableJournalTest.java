@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class QTableJournalTest {
+
+    private static final long[] KEYS = keys(); // Canonical, since snapshots fold the others
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void flushedBatchesSurviveACrash() throws IOException {
+        String prefix = directory.resolve("DBForX").toString();
+        QTable table = new QTable();
+        QTableJournal journal = new QTableJournal(prefix, table, null);
+        for (int i = 0; i < 600; i++) {
+            table.put(KEYS[i], i);
+            journal.append(KEYS[i], i);
+        }
+        // the process dies here: the 2 full batches were written, the last 88 records were not
+
+        QTable recovered = new QTable();
+        assertEquals(512, QTableJournal.recover(prefix, recovered, 0));
+        for (int i = 0; i < 512; i++)
+            assertEquals(i, recovered.get(KEYS[i], Double.NaN), 0.0);
+        assertFalse(recovered.contains(KEYS[512]));
+    }
+
+    @Test
+    void aTornBatchEndsTheReplay() throws IOException {
+        String prefix = directory.resolve("DBForX").toString();
+        QTable table = new QTable();
+        QTableJournal journal = new QTableJournal(prefix, table, null);
+        for (int i = 0; i < 512; i++)
+            journal.append(KEYS[i], 1.0);
+        try (FileChannel channel = FileChannel.open(Path.of(prefix + ".journal.0"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        assertEquals(256, QTableJournal.recover(prefix, new QTable(), 0));
+    }
+
+    @Test
+    void compactionWritesASnapshotAndDropsOldSegments() throws IOException {
+        String prefix = directory.resolve("DBForX").toString();
+        QTable table = new QTable();
+        try (QTableJournal journal = new QTableJournal(prefix, table, null)) {
+            for (int i = 0; i < 300; i++) {
+                table.put(KEYS[i], 1.0);
+                journal.append(KEYS[i], 1.0);
+            }
+            journal.compact(true);
+            for (int i = 0; i < 100; i++) {
+                table.put(KEYS[i], 2.0);
+                journal.append(KEYS[i], 2.0);
+            }
+        }
+        assertFalse(Files.exists(Path.of(prefix + ".journal.0")));
+
+        QTableFile.Mapped snapshot = QTableFile.map(Path.of(prefix + ".bin"));
+        assertEquals(1, snapshot.getFirstSegment());
+        QTable recovered = new QTable(snapshot);
+        QTableJournal.recover(prefix, recovered, snapshot.getFirstSegment());
+        assertEquals(table.size(), recovered.size());
+        table.forEach((key, value) -> assertEquals(value, recovered.get(key, Double.NaN), 0.0));
+    }
+
+    @Test
+    void segmentsOlderThanASnapshotAreNotReplayed() throws IOException {
+        String prefix = directory.resolve("DBForX").toString();
+        QTable table = new QTable();
+        try (QTableJournal journal = new QTableJournal(prefix, table, null)) {
+            table.put(KEYS[0], 5.0);
+            journal.append(KEYS[0], 5.0);
+        }
+        // saved without the journal, with a later value
+        table.put(KEYS[0], 7.0);
+        QTableFile.write(table, Path.of(prefix + ".bin"));
+
+        QTableFile.Mapped snapshot = QTableFile.map(Path.of(prefix + ".bin"));
+        QTable recovered = new QTable(snapshot);
+        assertEquals(0, QTableJournal.recover(prefix, recovered, snapshot.getFirstSegment()));
+        assertEquals(7.0, recovered.get(KEYS[0], Double.NaN), 0.0);
+
+        // a new journal starts after the snapshot, and its updates are replayed
+        try (QTableJournal journal = new QTableJournal(prefix, table, null)) {
+            journal.append(KEYS[0], 8.0);
+        }
+        recovered = new QTable(snapshot);
+        assertEquals(1, QTableJournal.recover(prefix, recovered, snapshot.getFirstSegment()));
+        assertEquals(8.0, recovered.get(KEYS[0], Double.NaN), 0.0);
+    }
+
+    private static long[] keys() {
+        QTable table = QTableFileTest.randomTable(5000);
+        long[] keys = new long[table.size()];
+        int[] i = {0};
+        table.forEach((key, value) -> keys[i[0]++] = key);
+        return keys;
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayBufferTest {
+
+    private static final int SAMPLES = 100000;
+
+    @Test
+    void theRingKeepsTheLatestTransitions() {
+        ReplayBuffer buffer = new ReplayBuffer(6, false);
+        assertEquals(8, buffer.capacity());
+        for (int i = 0; i < 20; i++)
+            buffer.add(i, -i, i + 100);
+        assertEquals(8, buffer.size());
+        Random random = new Random(5);
+        for (int n = 0; n < 1000; n++) {
+            int index = buffer.sample(random);
+            long key = buffer.key(index);
+            assertTrue(key >= 12 && key < 20, "only the last 8 transitions are kept");
+            assertEquals(-key, buffer.reward(index));
+            assertEquals(key + 100, buffer.nextKey(index));
+        }
+    }
+
+    @Test
+    void anEmptyBufferCantBeSampled() {
+        assertThrows(IllegalStateException.class, () -> new ReplayBuffer(8, false).sample(new Random()));
+        assertThrows(IllegalStateException.class, () -> new ReplayBuffer(8, true).sample(new Random()));
+    }
+
+    @Test
+    void uniformSamplingCoversTheFilledSlots() {
+        ReplayBuffer buffer = new ReplayBuffer(16, false);
+        for (int i = 0; i < 10; i++)
+            buffer.add(i, 0, 0);
+        int[] counts = sample(buffer, 16);
+        for (int i = 0; i < 16; i++) {
+            if (i < 10)
+                assertEquals(SAMPLES / 10.0, counts[i], SAMPLES / 100.0);
+            else
+                assertEquals(0, counts[i]);
+        }
+    }
+
+    @Test
+    void prioritizedSamplingFollowsTheTdErrors() {
+        ReplayBuffer buffer = new ReplayBuffer(4, true);
+        double[] errors = {0, 1, 10, 100};
+        for (int i = 0; i < 4; i++)
+            buffer.add(i, 0, 0);
+        for (int i = 0; i < 4; i++)
+            buffer.updatePriority(i, errors[i]);
+
+        double[] priorities = new double[4];
+        double total = 0;
+        for (int i = 0; i < 4; i++) {
+            priorities[i] = Math.pow(errors[i] + 1e-3, ReplayBuffer.ALPHA);
+            total += priorities[i];
+        }
+        int[] counts = sample(buffer, 4);
+        for (int i = 0; i < 4; i++)
+            assertEquals(SAMPLES * priorities[i] / total, counts[i], SAMPLES / 100.0);
+    }
+
+    @Test
+    void newTransitionsGetTheHighestPriority() {
+        ReplayBuffer buffer = new ReplayBuffer(4, true);
+        buffer.add(0, 0, 0);
+        buffer.updatePriority(0, 50);
+        buffer.add(1, 0, 0);
+        int[] counts = sample(buffer, 4);
+        assertEquals(counts[0], counts[1], SAMPLES / 50.0);
+    }
+
+    private static int[] sample(ReplayBuffer buffer, int slots) {
+        Random random = new Random(6);
+        int[] counts = new int[slots];
+        for (int n = 0; n < SAMPLES; n++)
+            counts[buffer.sample(random)]++;
+        return counts;
+    }
+}
@@ -0,0 +1,153 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolverTest {
+
+    private static short[] table;
+    private static final List<Long> states = new ArrayList<>(); // Every state reachable from the empty board
+
+    private final Map<Long, Boolean> wins = new HashMap<>();
+    private final Map<Long, Boolean> losses = new HashMap<>();
+
+    @BeforeAll
+    static void solve() {
+        table = Solver.solve();
+        Set<Long> seen = new HashSet<>();
+        states.add(BitBoard.EMPTY);
+        seen.add(BitBoard.key(BitBoard.EMPTY));
+        for (int i = 0; i < states.size(); i++) {
+            long state = states.get(i);
+            if (BitBoard.winner(state) != BitBoard.NO_WINNER)
+                continue;
+            for (int empty = BitBoard.emptyCells(state); empty != 0; empty &= empty - 1) {
+                long next = BitBoard.apply(state, Integer.numberOfTrailingZeros(empty));
+                if (seen.add(BitBoard.key(next)))
+                    states.add(next);
+            }
+        }
+    }
+
+    @Test
+    void xWinsFromTheEmptyBoardIn13Moves() {
+        short root = entry(BitBoard.EMPTY);
+        assertEquals(Solver.WIN, Solver.outcome(root));
+        assertEquals(13, Solver.distance(root));
+    }
+
+    @Test
+    void everyStateAgreesWithItsMoves() {
+        for (long state : states) {
+            short entry = entry(state);
+            int outcome = Solver.outcome(entry), distance = Solver.distance(entry);
+            assertNotEquals(Solver.UNKNOWN, outcome);
+            if (BitBoard.winner(state) != BitBoard.NO_WINNER) {
+                assertEquals(Solver.LOSS, outcome);
+                assertEquals(0, distance);
+                continue;
+            }
+            boolean childLost = false, childDrawn = false;
+            int slowestWin = 0;
+            for (int empty = BitBoard.emptyCells(state); empty != 0; empty &= empty - 1) {
+                short child = entry(BitBoard.apply(state, Integer.numberOfTrailingZeros(empty)));
+                if (Solver.outcome(child) == Solver.LOSS) {
+                    childLost = true;
+                    if (outcome == Solver.WIN)
+                        assertTrue(Solver.distance(child) >= distance - 1, "no faster win than the table's");
+                }
+                childDrawn |= Solver.outcome(child) == Solver.DRAW;
+                if (Solver.outcome(child) == Solver.WIN)
+                    slowestWin = Math.max(slowestWin, Solver.distance(child));
+            }
+            if (outcome == Solver.WIN) {
+                short best = entry(BitBoard.apply(state, Solver.move(entry)));
+                assertEquals(Solver.LOSS, Solver.outcome(best));
+                assertEquals(distance - 1, Solver.distance(best));
+            }
+            else if (outcome == Solver.LOSS) {
+                assertFalse(childLost || childDrawn);
+                assertEquals(distance - 1, slowestWin);
+            }
+            else {
+                assertFalse(childLost);
+                assertTrue(childDrawn);
+            }
+        }
+    }
+
+    @Test
+    void shortWinsAreFoundBySearch() {
+        for (long state : states) {
+            short entry = entry(state);
+            if (Solver.outcome(entry) != Solver.WIN || Solver.distance(entry) > 7)
+                continue;
+            int distance = Solver.distance(entry);
+            assertTrue(wins(state, distance));
+            assertFalse(wins(state, distance - 2));
+        }
+    }
+
+    @Test
+    void tablesSurviveAFile(@TempDir Path directory) throws IOException {
+        String file = directory.resolve("Solved.bin").toString();
+        Solver.write(table, file);
+        assertArrayEquals(table, Solver.read(file));
+    }
+
+    private static short entry(long state) {
+        return table[StateIndex.index(state)];
+    }
+
+    /**
+     * @return true if the side to move can force a win within {@code plies} moves, its own included.
+     */
+    private boolean wins(long state, int plies) {
+        if (plies <= 0)
+            return false;
+        Long key = BitBoard.key(state) << 5 | plies;
+        Boolean known = wins.get(key);
+        if (known != null)
+            return known;
+        boolean win = false;
+        for (int empty = BitBoard.emptyCells(state); empty != 0 && !win; empty &= empty - 1) {
+            long next = BitBoard.apply(state, Integer.numberOfTrailingZeros(empty));
+            win = BitBoard.winner(next) != BitBoard.NO_WINNER || loses(next, plies - 1);
+        }
+        wins.put(key, win);
+        return win;
+    }
+
+    /**
+     * @return true if every move of the side to move lets the opponent win within {@code plies} moves.
+     */
+    private boolean loses(long state, int plies) {
+        if (plies <= 1)
+            return false;
+        Long key = BitBoard.key(state) << 5 | plies;
+        Boolean known = losses.get(key);
+        if (known != null)
+            return known;
+        boolean loss = true;
+        for (int empty = BitBoard.emptyCells(state); empty != 0 && loss; empty &= empty - 1) {
+            long next = BitBoard.apply(state, Integer.numberOfTrailingZeros(empty));
+            loss = BitBoard.winner(next) == BitBoard.NO_WINNER && wins(next, plies - 1);
+        }
+        losses.put(key, loss);
+        return loss;
+    }
+}
@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class TranspositionTableTest {
+
+    @Test
+    void entriesKeepTheirFields() {
+        TranspositionTable table = new TranspositionTable(10);
+        Random random = new Random(3);
+        for (int i = 0; i < 10000; i++) {
+            long key = random.nextLong() & Long.MAX_VALUE;
+            int depth = random.nextInt(256);
+            int score = random.nextInt(65536) - 32768;
+            int bound = random.nextInt(3);
+            int move = random.nextBoolean() ? random.nextInt(9) : BitBoard.NONE;
+            table.clear();
+            table.store(key, depth, score, bound, move);
+            long entry = table.probe(key, depth);
+            assertNotEquals(TranspositionTable.MISS, entry);
+            assertEquals(depth, TranspositionTable.depth(entry));
+            assertEquals(score, TranspositionTable.score(entry));
+            assertEquals(bound, TranspositionTable.bound(entry));
+            assertEquals(move, TranspositionTable.move(entry));
+        }
+    }
+
+    @Test
+    void otherKeysMiss() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.store(42, 3, 7, TranspositionTable.EXACT, 4);
+        assertEquals(TranspositionTable.MISS, table.probe(43, 3));
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(42, 3));
+    }
+
+    @Test
+    void deepResultsSurviveShallowOnes() {
+        TranspositionTable table = new TranspositionTable(0); // one bucket, so every key shares it
+        table.store(1, 8, 100, TranspositionTable.EXACT, 4);
+        table.store(2, 2, 5, TranspositionTable.LOWER, 0);
+        table.store(3, 1, 6, TranspositionTable.UPPER, 1);
+        assertEquals(100, TranspositionTable.score(table.probe(1, 8)));
+        assertEquals(TranspositionTable.MISS, table.probe(2, 2), "the second entry is always replaced");
+        assertEquals(6, TranspositionTable.score(table.probe(3, 1)));
+    }
+
+    @Test
+    void probePrefersTheRequestedDepth() {
+        TranspositionTable table = new TranspositionTable(0);
+        table.store(1, 8, 100, TranspositionTable.EXACT, 4);
+        table.store(1, 3, 30, TranspositionTable.EXACT, 2);
+        assertEquals(100, TranspositionTable.score(table.probe(1, 8)));
+        assertEquals(30, TranspositionTable.score(table.probe(1, 3)));
+    }
+}
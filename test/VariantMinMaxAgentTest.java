@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Plays {@link VariantMinMaxAgent} on {@link Variant#CLASSIC} against {@link MinMaxAgent} on the same positions.
+ * Both see the wins within the depth limit and prefer the quickest, but score the other positions differently,
+ * so they can pick different cells: what has to agree is the value of the moves within the limit.
+ */
+class VariantMinMaxAgentTest {
+
+    private static final int POSITIONS = 200;
+
+    @Test
+    void findsTheMovesOfMinMaxOnTheClassicBoard() {
+        Random random = new Random(23);
+        for (int limit = 1; limit <= 5; limit++) {
+            VariantMinMaxAgent variantAgent = new VariantMinMaxAgent(Variant.CLASSIC);
+            variantAgent.changeLimit(limit);
+            MinMaxAgent[] agents = {new MinMaxAgent('X'), new MinMaxAgent('O')};
+            for (MinMaxAgent agent : agents)
+                agent.changeLimit(limit);
+            for (int i = 0; i < POSITIONS; i++) {
+                Position position = new Position(Variant.CLASSIC);
+                long state = randomPosition(position, random);
+                int expected = agents[BitBoard.sideToMove(state)].getPlayCell(state);
+                int cell = variantAgent.getPlayCell(position);
+                assertEquals(value(BitBoard.apply(state, expected), limit), value(BitBoard.apply(state, cell), limit),
+                        "limit " + limit + ", cells " + expected + " and " + cell + "\n" + position);
+            }
+        }
+    }
+
+    /**
+     * Scores a state the way {@link MinMaxAgent} does: a win with {@code limit} moves left is worth
+     * {@code limit} for X and {@code -limit} for O, and anything not decided within the limit is worth 0.
+     */
+    private static int value(long state, int limit) {
+        if (limit == 0)
+            return 0;
+        int winner = BitBoard.winner(state);
+        if (winner != BitBoard.NO_WINNER)
+            return winner == BitBoard.X ? limit : -limit;
+        boolean isXTurn = BitBoard.sideToMove(state) == BitBoard.X;
+        int best = isXTurn ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int empty = BitBoard.emptyCells(state); empty != 0; empty &= empty - 1) {
+            int score = value(BitBoard.apply(state, Integer.numberOfTrailingZeros(empty)), limit - 1);
+            best = isXTurn ? Math.max(best, score) : Math.min(best, score);
+        }
+        return best;
+    }
+
+    /**
+     * Plays the same random moves on the state and on the position, and keeps a position that is not over.
+     */
+    private static long randomPosition(Position position, Random random) {
+        while (true) {
+            long state = BitBoard.EMPTY;
+            int[] cells = new int[20];
+            int plies = random.nextInt(cells.length);
+            for (int i = 0; i < plies && BitBoard.winner(state) == BitBoard.NO_WINNER; i++) {
+                int empty = BitBoard.emptyCells(state);
+                for (int skip = random.nextInt(Integer.bitCount(empty)); skip > 0; skip--)
+                    empty &= empty - 1;
+                cells[i] = Integer.numberOfTrailingZeros(empty);
+                state = BitBoard.apply(state, cells[i]);
+            }
+            if (BitBoard.winner(state) == BitBoard.NO_WINNER) {
+                for (int i = 0; i < BitBoard.turn(state); i++)
+                    position.make(cells[i]);
+                return state;
+            }
+        }
+    }
+}
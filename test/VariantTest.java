@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VariantTest {
+
+    @Test
+    void countsTheLines() {
+        // rows, columns and the two diagonal directions
+        assertEquals(3 + 3 + 1 + 1, Variant.CLASSIC.getLines().length);
+        assertEquals(5 * 2 + 5 * 2 + 4 + 4, new Variant(5, 4, 8).getLines().length);
+        assertEquals(8 + 8 + 1 + 1, new Variant(8, 8, 0).getLines().length);
+        assertEquals(16, new Variant(4, 1, 0).getLines().length);
+    }
+
+    @Test
+    void findsTheLinesThroughACell() {
+        Variant classic = Variant.CLASSIC;
+        assertEquals(4, classic.getLinesThrough(classic.cell(1, 1)).length);
+        assertEquals(3, classic.getLinesThrough(classic.cell(0, 0)).length);
+        assertEquals(2, classic.getLinesThrough(classic.cell(0, 1)).length);
+        Variant variant = new Variant(5, 4, 8);
+        assertEquals(1 + 1 + 1, variant.getLinesThrough(variant.cell(0, 0)).length);
+        assertEquals(2 + 2 + 2 + 2, variant.getLinesThrough(variant.cell(2, 2)).length);
+    }
+
+    @Test
+    void checksTheLinesOfTheClassicBoard() {
+        Variant classic = Variant.CLASSIC;
+        for (long mask = 0; mask < 1 << 9; mask++)
+            assertEquals(BitBoard.hasLine((int) mask), classic.hasLine(mask), Long.toBinaryString(mask));
+        long diagonal = 1L << 2 | 1L << 4 | 1L << 6;
+        assertTrue(classic.hasLineThrough(diagonal, 4));
+        assertFalse(classic.hasLineThrough(diagonal, 1));
+    }
+
+    @Test
+    void parsesWhatItWrites() {
+        Variant variant = Variant.parse("5:4:8");
+        assertEquals(5, variant.getSize());
+        assertEquals(4, variant.getWinLength());
+        assertEquals(8, variant.getWindow());
+        assertEquals("5:4:8", variant.toString());
+        assertThrows(IllegalArgumentException.class, () -> Variant.parse("5:4"));
+        assertThrows(IllegalArgumentException.class, () -> Variant.parse("5:6:8"));
+        assertThrows(IllegalArgumentException.class, () -> Variant.parse("9:3:0"));
+        assertThrows(IllegalArgumentException.class, () -> Variant.parse("5:4:7"));
+    }
+}